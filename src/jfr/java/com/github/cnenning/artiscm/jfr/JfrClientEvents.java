@@ -0,0 +1,145 @@
+package com.github.cnenning.artiscm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import com.github.cnenning.artiscm.ClientEvents;
+
+/**
+ * Flight recorder events of plugin work, loaded by {@link ClientEvents} if present.
+ * Events are only allocated while a recording has them enabled.
+ */
+public class JfrClientEvents extends ClientEvents {
+
+	@Override
+	public Object httpStarted() {
+		HttpRequestEvent event = new HttpRequestEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void httpFinished(Object token, String urlTemplate, String type, int status, long bytes, String exception) {
+		HttpRequestEvent event = (HttpRequestEvent) token;
+		event.end();
+		if (event.shouldCommit()) {
+			event.urlTemplate = urlTemplate;
+			event.requestType = type;
+			event.status = status;
+			event.bytes = bytes;
+			event.exception = exception;
+			event.commit();
+		}
+	}
+
+	@Override
+	public Object parseStarted() {
+		ListingParseEvent event = new ListingParseEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void listingParsed(Object token, String url, int entries, long bytes) {
+		ListingParseEvent event = (ListingParseEvent) token;
+		event.end();
+		if (event.shouldCommit()) {
+			event.url = url;
+			event.entries = entries;
+			event.bytes = bytes;
+			event.commit();
+		}
+	}
+
+	@Override
+	public Object downloadStarted() {
+		DownloadEvent event = new DownloadEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void downloadFinished(Object token, String url, String file, long bytes) {
+		DownloadEvent event = (DownloadEvent) token;
+		event.end();
+		if (event.shouldCommit()) {
+			event.url = url;
+			event.file = file;
+			event.bytes = bytes;
+			event.commit();
+		}
+	}
+
+	@Name("com.github.cnenning.artiscm.HttpRequest")
+	@Label("Artifactory HTTP Request")
+	@Description("HTTP request sent to Artifactory, including reading the response")
+	@Category({"GoCD", "Artifactory Plugin"})
+	@StackTrace(false)
+	static class HttpRequestEvent extends Event {
+		@Label("URL Template")
+		@Description("Material (url and pattern) the request was sent for")
+		String urlTemplate;
+
+		@Label("Request Type")
+		String requestType;
+
+		@Label("Status")
+		@Description("Status code of response, -1 if there was none")
+		int status;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+		@Label("Exception")
+		@Description("Class of exception the request failed with")
+		String exception;
+	}
+
+	@Name("com.github.cnenning.artiscm.ListingParse")
+	@Label("Artifactory Listing Parse")
+	@Category({"GoCD", "Artifactory Plugin"})
+	@StackTrace(false)
+	static class ListingParseEvent extends Event {
+		@Label("URL")
+		String url;
+
+		@Label("Entries")
+		int entries;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+	}
+
+	@Name("com.github.cnenning.artiscm.Download")
+	@Label("Artifactory Download")
+	@Description("File downloaded during checkout")
+	@Category({"GoCD", "Artifactory Plugin"})
+	@StackTrace(false)
+	static class DownloadEvent extends Event {
+		@Label("URL")
+		String url;
+
+		@Label("File")
+		String file;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+	}
+}
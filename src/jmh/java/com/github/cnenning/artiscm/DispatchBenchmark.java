@@ -0,0 +1,87 @@
+package com.github.cnenning.artiscm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thoughtworks.go.plugin.api.request.DefaultGoPluginApiRequest;
+import com.thoughtworks.go.plugin.api.request.GoPluginApiRequest;
+import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
+
+/**
+ * handle() round trip of requests that need no HTTP: dispatch, JSON decoding and encoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+	private static final String SCM_CONFIG_BODY = "{\"scm-configuration\": {"
+			+ "\"url\": {\"value\": \"http://artifactory.example.com/repo/app-name/\"},"
+			+ "\"pattern\": {\"value\": \".*\\\\.jar\"},"
+			+ "\"version_regex\": {\"value\": \"[0-9.]+/\"},"
+			+ "\"username\": {\"value\": \"username\"},"
+			+ "\"password\": {\"value\": \"password\"}"
+			+ "}}";
+
+	private static final String SETTINGS_BODY = "{\"plugin-settings\": {"
+			+ "\"connectTimeout\": {\"value\": \"1000\"},"
+			+ "\"socketTimeout\": {\"value\": \"2000\"},"
+			+ "\"connectionRequestTimeout\": {\"value\": \"3000\"},"
+			+ "\"proxyUrl\": {\"value\": \"http://proxy.example.com:1234\"},"
+			+ "\"connPoolSize\": {\"value\": \"10\"}"
+			+ "}}";
+
+	private ArtifactoryScmPlugin plugin;
+	private GoPluginApiRequest scmConfiguration;
+	private GoPluginApiRequest scmView;
+	private GoPluginApiRequest validateScmConfiguration;
+	private GoPluginApiRequest validatePluginSettings;
+
+	@Setup
+	public void setup() {
+		plugin = new ArtifactoryScmPlugin();
+		scmConfiguration = request(ArtifactoryScmPlugin.REQUEST_SCM_CONFIGURATION, null);
+		scmView = request(ArtifactoryScmPlugin.REQUEST_SCM_VIEW, null);
+		validateScmConfiguration = request(ArtifactoryScmPlugin.REQUEST_SCM_VALIDATE_CONFIGURATION, SCM_CONFIG_BODY);
+		validatePluginSettings = request(AbstractArtifactoryPlugin.REQUEST_SETTINGS_VALIDATE, SETTINGS_BODY);
+	}
+
+	static GoPluginApiRequest request(String name, String body) {
+		DefaultGoPluginApiRequest request = new DefaultGoPluginApiRequest("scm", "1.0", name);
+		request.setRequestBody(body);
+		return request;
+	}
+
+	@Benchmark
+	public GoPluginApiResponse scmConfiguration() throws Exception {
+		return plugin.handle(scmConfiguration);
+	}
+
+	@Benchmark
+	public GoPluginApiResponse scmView() throws Exception {
+		return plugin.handle(scmView);
+	}
+
+	@Benchmark
+	public GoPluginApiResponse validateScmConfiguration() throws Exception {
+		return plugin.handle(validateScmConfiguration);
+	}
+
+	@Benchmark
+	public GoPluginApiResponse validatePluginSettings() throws Exception {
+		return plugin.handle(validatePluginSettings);
+	}
+}
@@ -0,0 +1,129 @@
+package com.github.cnenning.artiscm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.HttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thoughtworks.go.plugin.api.request.GoPluginApiRequest;
+import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
+
+/**
+ * handle() round trip of polling requests with HTTP answered from memory by {@link StubHttpClient}:
+ * dispatch, JSON, listing parsing and building of revisions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandleBenchmark {
+
+	static final String BASE_URL = "http://artifactory.example.com/repo/";
+	static final String PATH = "app-name/";
+	static final String URL = BASE_URL + PATH;
+
+	/** revisions newer than previous revision of latest-revisions-since */
+	static final int NEW_VERSIONS = 5;
+	static final int FILES = 10;
+
+	@Param({"10", "100", "1000"})
+	public int versions;
+
+	private ArtifactoryScmPlugin scmPlugin;
+	private ArtifactoryPkgPlugin pkgPlugin;
+	private GoPluginApiRequest latestRevision;
+	private GoPluginApiRequest latestRevisionsSince;
+	private GoPluginApiRequest checkScmConnection;
+	private GoPluginApiRequest pkgLatestRevisionSince;
+
+	@Setup
+	public void setup() {
+		final StubHttpClient httpClient = new StubHttpClient();
+		httpClient.html(URL, Listings.versions(versions));
+		String filesHtml = Listings.files(FILES);
+		for (int i = 0; i < versions; i++) {
+			httpClient.html(URL + "1.0." + i + "/", filesHtml);
+		}
+		String pkgUrl = URL + "1.0." + (versions - 1) + "/";
+
+		scmPlugin = new ArtifactoryScmPlugin() {
+			@Override
+			protected HttpClient httpClient() {
+				return httpClient;
+			}
+		};
+		pkgPlugin = new ArtifactoryPkgPlugin() {
+			@Override
+			protected HttpClient httpClient() {
+				return httpClient;
+			}
+		};
+
+		String scmConfiguration = "\"scm-configuration\": {"
+				+ "\"url\": {\"value\": \"" + URL + "\"},"
+				+ "\"pattern\": {\"value\": \"app-.*\\\\.jar\"},"
+				+ "\"version_regex\": {\"value\": \"1\\\\.0\\\\.[0-9]+/\"},"
+				+ "\"username\": {\"value\": \"username\"},"
+				+ "\"password\": {\"value\": \"password\"}"
+				+ "}";
+		int previous = Math.max(0, versions - 1 - NEW_VERSIONS);
+		String previousRevision = "\"previous-revision\": {"
+				+ "\"revision\": \"1.0." + previous + "\","
+				+ "\"timestamp\": \"" + AbstractArtifactoryPlugin.GO_DATE_FORMATTER.print(Listings.timestamp(previous)) + "\","
+				+ "\"data\": {}"
+				+ "}";
+
+		latestRevision = DispatchBenchmark.request(ArtifactoryScmPlugin.REQUEST_SCM_LATEST_REVISION,
+				"{" + scmConfiguration + "}");
+		latestRevisionsSince = DispatchBenchmark.request(ArtifactoryScmPlugin.REQUEST_SCM_LATEST_REVISIONS_SINCE,
+				"{" + scmConfiguration + "," + previousRevision + "}");
+		checkScmConnection = DispatchBenchmark.request(ArtifactoryScmPlugin.REQUEST_SCM_CHECK_CONNECTION,
+				"{" + scmConfiguration + "}");
+		pkgLatestRevisionSince = DispatchBenchmark.request(ArtifactoryPkgPlugin.REQUEST_PKG_LATEST_REV_SINCE, "{"
+				+ "\"repository-configuration\": {"
+				+ "\"base_url\": {\"value\": \"" + BASE_URL + "\"}"
+				+ "},"
+				+ "\"package-configuration\": {"
+				+ "\"path\": {\"value\": \"" + pkgUrl.substring(BASE_URL.length()) + "\"},"
+				+ "\"pattern\": {\"value\": \"app-(.*)\\\\.jar\"}"
+				+ "},"
+				+ "\"previous-revision\": {"
+				+ "\"revision\": \"app-0.jar\","
+				+ "\"timestamp\": \"" + AbstractArtifactoryPlugin.GO_DATE_FORMATTER.print(Listings.timestamp(0)) + "\","
+				+ "\"data\": {}"
+				+ "}"
+				+ "}");
+	}
+
+	@Benchmark
+	public GoPluginApiResponse latestRevision() throws Exception {
+		return scmPlugin.handle(latestRevision);
+	}
+
+	@Benchmark
+	public GoPluginApiResponse latestRevisionsSince() throws Exception {
+		return scmPlugin.handle(latestRevisionsSince);
+	}
+
+	@Benchmark
+	public GoPluginApiResponse checkScmConnection() throws Exception {
+		return scmPlugin.handle(checkScmConnection);
+	}
+
+	@Benchmark
+	public GoPluginApiResponse pkgLatestRevisionSince() throws Exception {
+		return pkgPlugin.handle(pkgLatestRevisionSince);
+	}
+}
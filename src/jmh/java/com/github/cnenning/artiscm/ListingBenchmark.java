@@ -0,0 +1,133 @@
+package com.github.cnenning.artiscm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Listing handling of {@link ArtifactoryClient} on generated listings, without HTTP.
+ * Run with GC profiler to see allocation rate: <code>gradle jmh -PjmhArgs='ListingBenchmark -prof gc'</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListingBenchmark {
+
+	static final String URL = "http://artifactory.example.com/repo/app-name/";
+	static final String VERSION_REGEX = "1\\.0\\.[0-9]+/";
+
+	@Param({"10", "1000", "10000", "100000"})
+	public int entries;
+
+	private ArtifactoryClient client;
+	private Document versionsDocument;
+	private List<Element> links;
+	private List<String> dateTexts;
+
+	@Setup
+	public void setup() {
+		String versionsHtml = Listings.versions(entries);
+		client = new ListingClient(versionsHtml, Listings.files(entries), Listings.files(10));
+		versionsDocument = Jsoup.parse(versionsHtml, URL);
+		links = new ArrayList<>(versionsDocument.select("a"));
+		dateTexts = new ArrayList<>(links.size());
+		for (Element link : links) {
+			Node nextSibling = link.nextSibling();
+			if (nextSibling instanceof TextNode) {
+				dateTexts.add(((TextNode) nextSibling).text());
+			}
+		}
+	}
+
+	@Benchmark
+	public Document parse() {
+		return Jsoup.parse(((ListingClient) client).versionsHtml, URL);
+	}
+
+	@Benchmark
+	public List<ArtifactoryClient.Revision> children() throws IOException {
+		return client.children(ListingClient.FILES_URL, false, null, null);
+	}
+
+	@Benchmark
+	public ArtifactoryClient.Revision latestChild() throws IOException {
+		return client.latestChild(URL, VERSION_REGEX, true, null, null);
+	}
+
+	/**
+	 * Versions listing is parsed already, files of latest version come from a small listing.
+	 */
+	@Benchmark
+	public List<ArtifactoryClient.Revision> revisions() throws IOException {
+		return client.revisions(URL, VERSION_REGEX, null, null, versionsDocument, null);
+	}
+
+	@Benchmark
+	public void elementToRev(Blackhole blackhole) {
+		for (Element link : links) {
+			blackhole.consume(client.elementToRev(link, null, URL));
+		}
+	}
+
+	@Benchmark
+	public void findDateInText(Blackhole blackhole) {
+		for (String text : dateTexts) {
+			blackhole.consume(client.findDateInText(text, URL));
+		}
+	}
+
+	/**
+	 * Serves generated listings instead of sending requests: versions at {@link #URL},
+	 * many files at {@link #FILES_URL} and a few files in each version.
+	 */
+	static class ListingClient extends ArtifactoryClient {
+		static final String FILES_URL = URL + "files/";
+
+		final String versionsHtml;
+		final String filesHtml;
+		final String versionFilesHtml;
+
+		ListingClient(String versionsHtml, String filesHtml, String versionFilesHtml) {
+			this.versionsHtml = versionsHtml;
+			this.filesHtml = filesHtml;
+			this.versionFilesHtml = versionFilesHtml;
+		}
+
+		@Override
+		protected Listing fetchListing(HttpGet httpget, String url, HttpClient client) {
+			String html;
+			if (URL.equals(url)) {
+				html = versionsHtml;
+			} else if (FILES_URL.equals(url)) {
+				html = filesHtml;
+			} else {
+				html = versionFilesHtml;
+			}
+			return new Listing(Jsoup.parse(html, url));
+		}
+	}
+}
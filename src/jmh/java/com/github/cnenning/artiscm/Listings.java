@@ -0,0 +1,77 @@
+package com.github.cnenning.artiscm;
+
+import java.util.Locale;
+
+import org.joda.time.format.DateTimeFormatter;
+
+/**
+ * Generates directory listings in the format of Artifactory's HTML browsing.
+ */
+public class Listings {
+
+	/** 01-Jan-2016 00:00 UTC */
+	private static final long START_MILLIS = 1451606400000L;
+	private static final long MINUTE_MILLIS = 60000;
+
+	private static final DateTimeFormatter DATE_FORMATTER = ArtifactoryClient.HTML_DATE_FORMATTER.withLocale(Locale.ENGLISH);
+
+	/**
+	 * @return last modified date of entry with given index
+	 */
+	public static long timestamp(int index) {
+		return START_MILLIS + index * MINUTE_MILLIS;
+	}
+
+	/**
+	 * @return listing of sub-directories named 1.0.0 to 1.0.&lt;count-1&gt;, ordered by date
+	 */
+	public static String versions(int count) {
+		StringBuilder sb = header(count);
+		for (int i = 0; i < count; i++) {
+			String name = "1.0." + i + "/";
+			entry(sb, name, timestamp(i), "-");
+		}
+		return footer(sb);
+	}
+
+	/**
+	 * @return listing of files, each third one a checksum file which is ignored by the plugin
+	 */
+	public static String files(int count) {
+		StringBuilder sb = header(count);
+		for (int i = 0; i < count; i++) {
+			String name;
+			switch (i % 3) {
+			case 1:
+				name = "app-" + (i - 1) + ".jar.md5";
+				break;
+			case 2:
+				name = "app-" + (i - 2) + ".jar.sha1";
+				break;
+			default:
+				name = "app-" + i + ".jar";
+			}
+			entry(sb, name, timestamp(i), (1000 + i) + " bytes");
+		}
+		return footer(sb);
+	}
+
+	private static StringBuilder header(int count) {
+		StringBuilder sb = new StringBuilder(200 + count * 80);
+		sb.append("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 3.2 Final//EN\">\n");
+		sb.append("<html>\n<head><title>Index of ...</title>\n</head>\n<body>\n<h1>Index of ...</h1>\n");
+		sb.append("<pre>Name              Last modified      Size</pre><hr/>\n");
+		sb.append("<pre><a href=\"../\">../</a>\n");
+		return sb;
+	}
+
+	private static void entry(StringBuilder sb, String name, long millis, String size) {
+		sb.append("<a href=\"").append(name).append("\">").append(name).append("</a>  ")
+			.append(DATE_FORMATTER.print(millis)).append("    ").append(size).append('\n');
+	}
+
+	private static String footer(StringBuilder sb) {
+		sb.append("</pre>\n<hr/><address style=\"font-size:small;\">Artifactory/... Server at ... Port ...</address></body></html>\n");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,71 @@
+package com.github.cnenning.artiscm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Answers requests from memory: registered bodies by url, 404 for anything else.
+ */
+public class StubHttpClient extends CloseableHttpClient {
+
+	private final Map<String, String> htmlByUrl = new HashMap<>();
+
+	/**
+	 * @param url with trailing slash for listings
+	 */
+	public StubHttpClient html(String url, String html) {
+		htmlByUrl.put(url, html);
+		return this;
+	}
+
+	@Override
+	protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) {
+		String url = request instanceof HttpUriRequest
+			? ((HttpUriRequest) request).getURI().toString()
+			: target.toURI() + request.getRequestLine().getUri();
+		String html = htmlByUrl.get(url);
+		StubResponse response = new StubResponse(html != null ? HttpStatus.SC_OK : HttpStatus.SC_NOT_FOUND);
+		if (html != null) {
+			response.setEntity(new StringEntity(html, ContentType.TEXT_HTML));
+		}
+		return response;
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public org.apache.http.params.HttpParams getParams() {
+		return new org.apache.http.params.BasicHttpParams();
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+		return null;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	static class StubResponse extends BasicHttpResponse implements CloseableHttpResponse {
+		StubResponse(int statusCode) {
+			super(HttpVersion.HTTP_1_1, statusCode, null);
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
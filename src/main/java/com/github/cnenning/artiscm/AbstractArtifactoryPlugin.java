@@ -1,12 +1,15 @@
 package com.github.cnenning.artiscm;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -14,6 +17,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
 import javax.xml.stream.XMLEventReader;
@@ -28,17 +36,17 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.config.RequestConfig.Builder;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
-import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.cnenning.artiscm.ArtifactoryClient.Revision;
 import com.thoughtworks.go.plugin.api.GoApplicationAccessor;
 import com.thoughtworks.go.plugin.api.GoPlugin;
+import com.thoughtworks.go.plugin.api.annotation.UnLoad;
 import com.thoughtworks.go.plugin.api.exceptions.UnhandledRequestTypeException;
+import com.thoughtworks.go.plugin.api.info.PluginContext;
 import com.thoughtworks.go.plugin.api.logging.Logger;
 import com.thoughtworks.go.plugin.api.request.DefaultGoApiRequest;
 import com.thoughtworks.go.plugin.api.request.GoApiRequest;
@@ -56,35 +64,396 @@ public abstract class AbstractArtifactoryPlugin implements GoPlugin {
 	public static final String REQUEST_SETTINGS_VALIDATE = "go.plugin-settings.validate-configuration";
 	public static final String REQUEST_SETTINGS_GET_THEM = "go.processor.plugin-settings.get";
 
-	public static final DateFormat GO_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+	/** local time with a literal 'Z', as go expects it. Immutable, thus safe for concurrent requests */
 	public static final DateTimeFormatter GO_DATE_FORMATTER = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
 
 	private static final int DEFAULT_TIMEOUT = 240;
+	private static final int DEFAULT_SETTINGS_RELOAD_SECONDS = 60;
+	private static final long SETTINGS_SAVE_DELAY_MILLIS = 5000;
+	private static final int DEFAULT_SLOW_POLL_REPORT_SECONDS = 300;
+	private static final int DEFAULT_POOL_PENDING_WARN = 5;
+	private static final long POOL_SAMPLE_SECONDS = 5;
+
+	/** settings the transport is built from, changes of others are applied without replacing it */
+	private static final List<String> TRANSPORT_SETTINGS = Arrays.asList("connectTimeout", "socketTimeout",
+			"connectionRequestTimeout", "proxyUrl", "connPoolSize", "hedgePercentile", "hedgeMaxOutstanding",
+			"circuitBreakerThreshold", "circuitBreakerOpenMillis", "maxConcurrentPerHost",
+			"requestsPerSecondPerHost", "adaptiveTimeoutFloor", "adaptiveTimeoutCeiling");
 
 	protected Logger logger = Logger.getLoggerFor(getClass());
+	protected DiagnosticLog log = new DiagnosticLog(logger);
+
+	private volatile GoApplicationAccessor goApplicationAccessor;
+
+	/** records requests and listings if enabled in settings */
+	private volatile WorkloadRecorder recorder;
+
+	private final AtomicReference<Transport> transport = new AtomicReference<>();
+
+	/** all plugin settings as read last */
+	private volatile Map settings = Collections.EMPTY_MAP;
+
+	private final BackgroundRefresh backgroundRefresh = new BackgroundRefresh();
+
+	private final LastGoodRevisions lastGoodRevisions = new LastGoodRevisions();
+
+	private final ListingMemo listingMemo = new ListingMemo();
+
+	private final NotFoundCache notFoundCache = new NotFoundCache();
+
+	/** salts fingerprints of credentials in material keys, so keys in reports do not reveal passwords */
+	private final byte[] credentialsSalt = new byte[16];
+
+	/** listens for deploy events if enabled in settings, replaced by reloadSettings() and read without its lock */
+	private volatile WebhookReceiver webhookReceiver;
+	private volatile String webhookConfig;
 
-	protected HttpClient httpClient;
+	/** transport leased by request handled by current thread */
+	private final ThreadLocal<Transport> leasedTransport = new ThreadLocal<>();
+
+	private ScheduledExecutorService scheduler;
 
 	@Override
 	public void initializeGoApplicationAccessor(GoApplicationAccessor goApplicationAccessor) {
 		logger.debug("initializeGoApplicationAccessor()");
+		this.goApplicationAccessor = goApplicationAccessor;
+		metrics.register();
+
+		reloadSettings();
+		scheduleSettingsReload(settingsReloadSeconds() * 1000L, true);
+		scheduleSlowPollReport();
+		schedulePoolSampling();
+	}
 
+	/**
+	 * Called by go when the plugin is unloaded. Stops all threads, frees the webhook port, closes the transport once
+	 * requests in flight are done and removes MBeans, so nothing keeps this instance and its class loader alive.
+	 */
+	@UnLoad
+	public synchronized void unload(PluginContext context) {
+		logger.debug("unload()");
+		// stops scheduling of settings reloads
+		goApplicationAccessor = null;
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+		backgroundRefresh.shutdown();
+		configureWebhook(Collections.EMPTY_MAP);
+		configureRecorder(Collections.EMPTY_MAP);
+		Transport current = transport.getAndSet(null);
+		if (current != null) {
+			current.retire();
+		}
+		metrics.unregister();
+	}
+
+	/**
+	 * Reads plugin settings and replaces transport if settings it is built from changed, other settings are applied
+	 * in place. Requests in flight finish on the old transport, which gets closed afterwards.
+	 * @return true if transport got replaced
+	 */
+	protected synchronized boolean reloadSettings() {
+		if (goApplicationAccessor == null) {
+			// unloaded
+			return false;
+		}
 		GoApiRequest request = new DefaultGoApiRequest(REQUEST_SETTINGS_GET_THEM, GO_API_VERSION, pluginIdentifier());
 		GoApiResponse response = goApplicationAccessor.submit(request);
 
 		String json = response.responseBody();
+		Map settings = readSettings(json);
+		this.settings = settings;
+		DiagnosticLog.setDumpBodies(isTrue((String) settings.get("debugLogging")));
+		configureTracing(settings);
+		configureRecorder(settings);
+		configureBackgroundRefresh(settings);
+		configureWebhook(settings);
+		listingMemo.configure((int) longFromSettings(settings, "listingMemoEntries", ListingMemo.DEFAULT_MAX_ENTRIES));
+		notFoundCache.configure(longFromSettings(settings, "notFoundCacheMillis", NotFoundCache.DEFAULT_MILLIS));
+
+		Map transportSettings = transportSettings(settings);
+		Transport current = transport.get();
+		if (current != null && current.settings.equals(transportSettings)) {
+			return false;
+		}
+		if (current != null) {
+			logger.info("transport settings changed, creating new transport");
+		}
+		transport.set(createTransport(transportSettings));
+		if (current != null) {
+			current.retire();
+		}
+		return true;
+	}
+
+	private static Map transportSettings(Map settings) {
+		Map<String, Object> transportSettings = new HashMap<>();
+		for (String key : TRANSPORT_SETTINGS) {
+			if (settings.containsKey(key)) {
+				transportSettings.put(key, settings.get(key));
+			}
+		}
+		return transportSettings;
+	}
+
+	private void configureTracing(Map settings) {
+		double samplePercent = 0;
+		String samplePercentStr = (String) settings.get("traceSamplePercent");
+		if (samplePercentStr != null && !samplePercentStr.isEmpty()) {
+			try {
+				samplePercent = Double.parseDouble(samplePercentStr);
+			} catch (NumberFormatException e) {
+				logger.warn("invalid value of setting 'traceSamplePercent': " + samplePercentStr);
+			}
+		}
+		metrics.tracing().configure(samplePercent, longFromSettings(settings, "traceSlowMillis", Tracing.DEFAULT_SLOW_MILLIS));
+	}
+
+	private void configureBackgroundRefresh(Map settings) {
+		int concurrency = (int) longFromSettings(settings, "backgroundRefreshConcurrency", 0);
+		long maxAgeSeconds = longFromSettings(settings, "backgroundRefreshMaxAgeSeconds", BackgroundRefresh.DEFAULT_MAX_AGE_MILLIS / 1000);
+		if (concurrency > 0 && !backgroundRefresh.isEnabled()) {
+			logger.info("setting backgroundRefreshConcurrency: " + concurrency + ", backgroundRefreshMaxAgeSeconds: " + maxAgeSeconds);
+		}
+		backgroundRefresh.configure(concurrency, maxAgeSeconds * 1000, scheduler());
+	}
+
+	private void configureWebhook(Map settings) {
+		int port = (int) longFromSettings(settings, "webhookPort", 0);
+		String secret = (String) settings.get("webhookSecret");
+		String bindAddress = (String) settings.get("webhookBindAddress");
+		if (bindAddress == null || bindAddress.trim().isEmpty()) {
+			bindAddress = WebhookReceiver.DEFAULT_BIND_ADDRESS;
+		}
+		bindAddress = bindAddress.trim();
+		String config = port > 0 ? bindAddress + " " + port + " " + secret : null;
+		if (config == null ? webhookConfig == null : config.equals(webhookConfig)) {
+			return;
+		}
+		if (webhookReceiver != null) {
+			logger.info("stopping webhook receiver on port: " + webhookReceiver.port());
+			webhookReceiver.close();
+			webhookReceiver = null;
+		}
+		webhookConfig = config;
+		if (port > 0) {
+			try {
+				webhookReceiver = new WebhookReceiver(bindAddress, port, secret, new WebhookReceiver.Listener() {
+					@Override
+					public void changed(String repoKey, String path) {
+						invalidate(repoKey, path);
+					}
+				});
+				logger.info("receiving webhooks on: " + bindAddress + ":" + port);
+			} catch (IOException e) {
+				logger.error("could not listen for webhooks on: " + bindAddress + ":" + port, e);
+			}
+		}
+	}
+
+	/**
+	 * Drops cached state of listings a changed artifact or folder affects and refreshes affected materials.
+	 */
+	protected void invalidate(String repoKey, String path) {
+		for (Map.Entry<String, String> material : backgroundRefresh.materialUrls().entrySet()) {
+			if (WebhookReceiver.affects(material.getValue(), repoKey, path)) {
+				logger.debug("invalidating material " + material.getKey() + " after change of: " + repoKey + "/" + path);
+				backgroundRefresh.invalidate(material.getKey());
+			}
+		}
+		for (String url : notFoundCache.urls()) {
+			if (WebhookReceiver.affects(url, repoKey, path)) {
+				notFoundCache.forget(url);
+			}
+		}
+	}
+
+	public WebhookReceiver webhookReceiver() {
+		return webhookReceiver;
+	}
+
+	private void configureRecorder(Map settings) {
+		String path = (String) settings.get("recordWorkloadFile");
+		if (path != null && path.trim().isEmpty()) {
+			path = null;
+		}
+		WorkloadRecorder current = recorder;
+		if (current != null && path != null && current.file().equals(new File(path))) {
+			return;
+		}
+		if (current != null) {
+			logger.info("stopping to record workload to: " + current.file());
+			recorder = null;
+			try {
+				current.close();
+			} catch (IOException e) {
+				logger.warn("could not close workload recording", e);
+			}
+		}
+		if (path != null) {
+			try {
+				recorder = new WorkloadRecorder(new File(path));
+				logger.info("recording workload to: " + path);
+			} catch (IOException e) {
+				logger.error("could not record workload to: " + path, e);
+			}
+		}
+	}
+
+	private Transport createTransport(Map settings) {
+		return new Transport(settings,
+				createHttpClient(settings),
+				createHedging(settings),
+				createCircuitBreakers(settings),
+				createAdmissionControl(settings),
+				createAdaptiveTimeouts(settings));
+	}
+
+	private synchronized void scheduleSettingsReload(long delayMillis, final boolean periodic) {
+		if (goApplicationAccessor == null || delayMillis < 1) {
+			return;
+		}
+		scheduler().schedule(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					reloadSettings();
+				} catch (Exception e) {
+					logger.error("could not reload plugin settings", e);
+				} finally {
+					if (periodic) {
+						scheduleSettingsReload(settingsReloadSeconds() * 1000L, true);
+					}
+				}
+			}
+		}, delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private synchronized ScheduledExecutorService scheduler() {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "artifactory-plugin-scheduler");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return scheduler;
+	}
+
+	/**
+	 * Writes report of slowest materials periodically, checks again later if disabled in settings.
+	 */
+	private void scheduleSlowPollReport() {
+		if (scheduler().isShutdown()) {
+			return;
+		}
+		int seconds = slowPollReportSeconds();
+		long delaySeconds = seconds > 0 ? seconds : DEFAULT_SLOW_POLL_REPORT_SECONDS;
+		scheduler().schedule(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (slowPollReportSeconds() > 0) {
+						metrics.materials().writeReport(slowPollReportFile());
+					}
+				} catch (Exception e) {
+					logger.error("could not write slow poll report", e);
+				} finally {
+					scheduleSlowPollReport();
+				}
+			}
+		}, delaySeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Samples leases waiting for a pooled connection and warns if there are more than configured.
+	 */
+	private void schedulePoolSampling() {
+		scheduler().scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					long threshold = longFromSettings(settings, "poolPendingWarnThreshold", DEFAULT_POOL_PENDING_WARN);
+					int pending = metrics.connectionPool().pending();
+					if (threshold > 0 && pending >= threshold) {
+						log.warnRateLimited("poolPending", "{} requests waiting for a pooled connection, consider raising Connection Pool Size: {}",
+								pending, Arrays.toString(metrics.connectionPool().getRoutes()));
+					}
+				} catch (Exception e) {
+					logger.error("could not sample connection pool", e);
+				}
+			}
+		}, POOL_SAMPLE_SECONDS, POOL_SAMPLE_SECONDS, TimeUnit.SECONDS);
+	}
 
-		httpClient = createHttpClient(json);
+	private int slowPollReportSeconds() {
+		return (int) longFromSettings(settings, "slowPollReportSeconds", DEFAULT_SLOW_POLL_REPORT_SECONDS);
 	}
 
-	private HttpClient createHttpClient(String json) {
+	/**
+	 * @return file in the directory go extracted the plugin to, or in working directory of go-server
+	 */
+	protected File slowPollReportFile() {
+		File dir = null;
+		try {
+			dir = new File(getClass().getProtectionDomain().getCodeSource().getLocation().toURI());
+		} catch (Exception e) {
+			logger.debug("could not determine plugin directory", e);
+		}
+		if (dir == null || !dir.isDirectory()) {
+			dir = new File(System.getProperty("user.dir"));
+		}
+		return new File(dir, "slow-polls-" + pluginIdentifier().getExtension() + ".txt");
+	}
+
+	private int settingsReloadSeconds() {
+		return (int) longFromSettings(settings, "settingsReloadSeconds", DEFAULT_SETTINGS_RELOAD_SECONDS);
+	}
+
+	/**
+	 * @return transport leased by current request or, outside of requests, the current one
+	 */
+	protected Transport transport() {
+		Transport leased = leasedTransport.get();
+		return leased != null ? leased : transport.get();
+	}
+
+	private Transport leaseTransport() {
+		while (true) {
+			Transport current = transport.get();
+			if (current == null) {
+				return null;
+			}
+			if (current.lease()) {
+				leasedTransport.set(current);
+				return current;
+			}
+		}
+	}
+
+	protected HttpClient httpClient() {
+		Transport current = transport();
+		return current != null ? current.httpClient() : null;
+	}
+
+	private Map readSettings(String json) {
+		try {
+			if (json != null) {
+				return ApiJson.MAP_READER.readValue(json);
+			}
+		} catch (Exception e) {
+			logger.error("could not read plugin settings", e);
+		}
+		return Collections.EMPTY_MAP;
+	}
+
+	private HttpClient createHttpClient(Map settings) {
 		Builder requestConfigBuilder = RequestConfig.custom();
 		Integer connPoolSize = null;
 		try {
-			Map settings = json != null
-				? new ObjectMapper().readValue(json, Map.class)
-				: Collections.EMPTY_MAP;
-
 			int timeout = timeoutFromSettings(settings, "connectTimeout");
 			logger.info("setting connectTimeout: " + timeout);
 			requestConfigBuilder.setConnectTimeout(timeout);
@@ -112,15 +481,200 @@ public abstract class AbstractArtifactoryPlugin implements GoPlugin {
 			logger.error("could not read plugin settings", e);
 		}
 
-		HttpClientBuilder clientBuilder = HttpClientBuilder.create();
-		clientBuilder.setUserAgent(buildUserAgent());
-		clientBuilder.setDefaultRequestConfig(requestConfigBuilder.build());
+		PoolingHttpClientConnectionManager connectionManager = metrics.connectionPool().newConnectionManager();
 		if (connPoolSize != null) {
-			clientBuilder.setMaxConnPerRoute(connPoolSize.intValue());
+			connectionManager.setDefaultMaxPerRoute(connPoolSize.intValue());
 		}
+		HttpClientBuilder clientBuilder = HttpClientBuilder.create();
+		clientBuilder.setUserAgent(userAgent);
+		clientBuilder.setDefaultRequestConfig(requestConfigBuilder.build());
+		clientBuilder.setConnectionManager(connectionManager);
 		return clientBuilder.build();
 	}
 
+	private Hedging createHedging(Map settings) {
+		try {
+			String percentileStr = (String)settings.get("hedgePercentile");
+			if (percentileStr != null && !percentileStr.isEmpty()) {
+				double percentile = Double.parseDouble(percentileStr);
+				int maxOutstanding = Hedging.DEFAULT_MAX_OUTSTANDING;
+				String maxOutstandingStr = (String)settings.get("hedgeMaxOutstanding");
+				if (maxOutstandingStr != null && !maxOutstandingStr.isEmpty()) {
+					maxOutstanding = Integer.parseInt(maxOutstandingStr);
+				}
+				logger.info("setting hedgePercentile: " + percentile + ", hedgeMaxOutstanding: " + maxOutstanding);
+				return new Hedging(percentile, maxOutstanding);
+			}
+		} catch (Exception e) {
+			logger.error("could not read hedging settings", e);
+		}
+		return null;
+	}
+
+	private CircuitBreakers createCircuitBreakers(Map settings) {
+		int threshold = (int) longFromSettings(settings, "circuitBreakerThreshold", CircuitBreakers.DEFAULT_FAILURE_THRESHOLD);
+		long openMillis = longFromSettings(settings, "circuitBreakerOpenMillis", CircuitBreakers.DEFAULT_OPEN_MILLIS);
+		if (threshold < 1) {
+			logger.info("circuit breaker disabled");
+			return null;
+		}
+		logger.info("setting circuitBreakerThreshold: " + threshold + ", circuitBreakerOpenMillis: " + openMillis);
+		return new CircuitBreakers(threshold, openMillis);
+	}
+
+	private AdmissionControl createAdmissionControl(Map settings) {
+		int maxConcurrent = (int) longFromSettings(settings, "maxConcurrentPerHost", 0);
+		int requestsPerSecond = (int) longFromSettings(settings, "requestsPerSecondPerHost", 0);
+		if (maxConcurrent < 1 && requestsPerSecond < 1) {
+			return null;
+		}
+		logger.info("setting maxConcurrentPerHost: " + maxConcurrent + ", requestsPerSecondPerHost: " + requestsPerSecond);
+		return new AdmissionControl(maxConcurrent, requestsPerSecond);
+	}
+
+	private AdaptiveTimeouts createAdaptiveTimeouts(Map settings) {
+		int ceiling = (int) longFromSettings(settings, "adaptiveTimeoutCeiling", 0);
+		if (ceiling < 1) {
+			return null;
+		}
+		int floor = (int) longFromSettings(settings, "adaptiveTimeoutFloor", AdaptiveTimeouts.DEFAULT_FLOOR);
+		logger.info("setting adaptiveTimeoutFloor: " + floor + ", adaptiveTimeoutCeiling: " + ceiling);
+		return new AdaptiveTimeouts(floor, ceiling);
+	}
+
+	private long longFromSettings(Map settings, String key, long defaultValue) {
+		String value = (String)settings.get(key);
+		if (value != null && !value.isEmpty()) {
+			try {
+				return Long.parseLong(value);
+			} catch (Exception e) {
+				logger.warn("invalid value of setting '" + key + "': " + value);
+			}
+		}
+		return defaultValue;
+	}
+
+	protected ArtifactoryClient artifactoryClient() {
+		Transport current = transport();
+		ArtifactoryClient client = current != null ? current.artifactoryClient() : new ArtifactoryClient();
+		return client.withMetrics(currentRequestMetrics.get()).withRecorder(recorder).withListingMemo(listingMemo)
+				.withNotFoundCache(notFoundCache);
+	}
+
+	/**
+	 * @param directory whether pattern matches directories instead of files
+	 * @return key of material covering everything its latest revision depends on, credentials only as salted fingerprint
+	 */
+	protected String materialKey(String url, String pattern, boolean directory, UserPw userPw) {
+		StringBuilder key = new StringBuilder(url);
+		if (pattern != null && !pattern.isEmpty()) {
+			key.append(' ').append(pattern);
+		}
+		if (directory) {
+			key.append(" (directories)");
+		}
+		if (userPw != null && (!isEmpty(userPw.username) || !isEmpty(userPw.password))) {
+			key.append(" (credentials ").append(fingerprint(userPw)).append(')');
+		}
+		return key.toString();
+	}
+
+	private String fingerprint(UserPw userPw) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update(credentialsSalt);
+		digest.update((userPw.username + "\u0000" + userPw.password).getBytes(StandardCharsets.UTF_8));
+		StringBuilder hex = new StringBuilder();
+		for (byte b : Arrays.copyOf(digest.digest(), 4)) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	private static boolean isEmpty(String value) {
+		return value == null || value.isEmpty();
+	}
+
+	/**
+	 * Answers a poll from memory if background refresh is enabled and has a fresh revision of the material.
+	 * Either way the material is scheduled for refresh ahead of its next poll.
+	 * @param url listing url of material
+	 * @param fetcher fetches latest revision in background
+	 * @return fresh revision, null if poll has to fetch it
+	 */
+	protected Revision backgroundRevision(String materialKey, String url, LeasingFetcher fetcher) {
+		Revision revision = backgroundRefresh.cached(materialKey);
+		backgroundRefresh.polled(materialKey, url, fetcher);
+		return revision;
+	}
+
+	/**
+	 * Fetcher for background refresh, which runs outside of go requests. Leases the transport for the fetch
+	 * like {@link #handle(GoPluginApiRequest)} does, so a settings reload does not close it meanwhile.
+	 */
+	protected abstract class LeasingFetcher implements BackgroundRefresh.Fetcher {
+
+		@Override
+		public final Revision fetch() throws Exception {
+			// already leased if called within a request
+			Transport leased = leasedTransport.get() == null ? leaseTransport() : null;
+			try {
+				return fetchLeased();
+			} finally {
+				if (leased != null) {
+					leasedTransport.remove();
+					leased.release();
+				}
+			}
+		}
+
+		/**
+		 * Uses {@link #artifactoryClient()} and {@link #httpClient()}, which return the leased transport.
+		 * @return null if there is no valid revision
+		 */
+		protected abstract Revision fetchLeased() throws Exception;
+	}
+
+	/**
+	 * Keeps revision a poll fetched itself for following polls, if background refresh is enabled.
+	 */
+	protected void updateBackgroundRevision(String materialKey, Revision revision) {
+		backgroundRefresh.update(materialKey, revision);
+	}
+
+	public BackgroundRefresh backgroundRefresh() {
+		return backgroundRefresh;
+	}
+
+	public ListingMemo listingMemo() {
+		return listingMemo;
+	}
+
+	/**
+	 * Remembers revision as last known good one of a material, to be served while the circuit breaker of its host is open.
+	 * Remembered even while circuit breakers are disabled, so there is one as soon as they get enabled.
+	 */
+	protected void rememberRevision(String materialKey, Revision revision) {
+		lastGoodRevisions.remember(materialKey, revision);
+	}
+
+	/**
+	 * @return last known good revision of material
+	 * @throws CircuitOpenException if there is none
+	 */
+	protected Revision lastGoodRevision(String materialKey, CircuitOpenException e) throws CircuitOpenException {
+		Revision revision = lastGoodRevisions.get(materialKey);
+		if (revision == null) {
+			throw e;
+		}
+		logger.warn(e.getMessage() + ", serving last known revision '" + revision.revision + "' of: " + materialKey);
+		return revision;
+	}
+
 	private int timeoutFromSettings(Map settings, String key) {
 		int timeout = DEFAULT_TIMEOUT;
 		try {
@@ -176,35 +730,148 @@ public abstract class AbstractArtifactoryPlugin implements GoPlugin {
 		return new String[]{pluginId, pluginVersion};
 	}
 
+	/**
+	 * Handles a go plugin API request, parsed body is null for requests without body.
+	 */
+	protected static interface RequestHandler {
+		GoPluginApiResponse handle(ApiJson.Request request) throws Exception;
+	}
+
+	private final Map<String, RequestHandler> handlers = new HashMap<>();
+
+	/** plugin.xml does not change at runtime, read it once */
+	private final String userAgent;
+
+	private final Metrics metrics;
+
+	/** metrics of request handled by current thread */
+	private final ThreadLocal<RequestMetrics> currentRequestMetrics = new ThreadLocal<>();
+
+	public AbstractArtifactoryPlugin() {
+		userAgent = buildUserAgent();
+		new SecureRandom().nextBytes(credentialsSalt);
+		metrics = new Metrics(pluginIdentifier().getExtension());
+		registerStaticHandler(REQUEST_SETTINGS_GET_CONFIG, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handlePluginConfig());
+			}
+		});
+		registerStaticHandler(REQUEST_SETTINGS_GET_VIEW, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handlePluginConfigView());
+			}
+		});
+		registerHandler(REQUEST_SETTINGS_VALIDATE, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				List<ApiJson.ValidationError> valiErrors = handlePluginConfigValidation(request);
+				if (valiErrors.isEmpty()) {
+					// go saves settings after validation succeeded
+					scheduleSettingsReload(SETTINGS_SAVE_DELAY_MILLIS, false);
+				}
+				return toJson(valiErrors);
+			}
+		});
+	}
+
+	protected void registerHandler(String requestName, RequestHandler handler) {
+		handlers.put(requestName, handler);
+	}
+
+	/**
+	 * Registers handler of a request whose response depends neither on request nor on settings.
+	 * Handler is called once right away, afterwards its serialized response is reused.
+	 * If that fails handler gets called on each request, as if registered normally.
+	 */
+	protected void registerStaticHandler(String requestName, RequestHandler handler) {
+		final GoPluginApiResponse response;
+		try {
+			response = handler.handle(null);
+		} catch (Exception e) {
+			logger.error("could not prepare response of: " + requestName, e);
+			registerHandler(requestName, handler);
+			return;
+		}
+		final int code = response.responseCode();
+		final String body = response.responseBody();
+		registerHandler(requestName, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) {
+				// responses are mutable, hand out a fresh one
+				DefaultGoPluginApiResponse copy = new DefaultGoPluginApiResponse(code);
+				copy.setResponseBody(body);
+				return copy;
+			}
+		});
+	}
+
 	@Override
 	public GoPluginApiResponse handle(GoPluginApiRequest requestMessage) throws UnhandledRequestTypeException {
-		long startTime = System.currentTimeMillis();
+		long startTime = System.nanoTime();
 		String name = requestMessage.requestName();
 		String body = requestMessage.requestBody();
-		logger.debug("got requestName: '" + name + "', with body: " + body);
+		log.debug("got requestName: '{}', with body: {}", name, DiagnosticLog.debugBody(body));
+		Transport leased = leaseTransport();
+		RequestMetrics requestMetrics = null;
+		GoPluginApiResponse response = null;
+		Trace trace = metrics.tracing().begin(name);
 		try {
-			if (REQUEST_SETTINGS_GET_CONFIG.equals(name)) {
-				return toJson(handlePluginConfig());
-			} else if (REQUEST_SETTINGS_GET_VIEW.equals(name)) {
-				return toJson(handlePluginConfigView());
-			} else if (REQUEST_SETTINGS_VALIDATE.equals(name)) {
-				return toJson(handlePluginConfigValidation(body));
-			} else {
-				GoPluginApiResponse response = handleApiRequest(name, body);
-				if (response == null) {
-					logger.warn("unknown request: " + name);
-				}
-				return response;
+			RequestHandler handler = handlers.get(name);
+			if (handler == null) {
+				logger.warn("unknown request: " + name);
+				return null;
+			}
+			requestMetrics = metrics.forRequest(name);
+			currentRequestMetrics.set(requestMetrics);
+			WorkloadRecorder currentRecorder = recorder;
+			if (currentRecorder != null) {
+				currentRecorder.request(name, body);
 			}
+			long decodeStart = Trace.start();
+			ApiJson.Request request = body != null && !body.isEmpty()
+				? ApiJson.REQUEST_READER.<ApiJson.Request>readValue(body)
+				: null;
+			Trace.end("decode", null, decodeStart);
+			response = handler.handle(request);
+			return response;
 		} catch (Exception e) {
-			return error(name, body, e);
+			response = error(name, body, e);
+			return response;
 		} finally {
-			long endTime = System.currentTimeMillis();
-			logger.debug("operation took: " + (endTime - startTime) + " ms");
+			if (leased != null) {
+				leasedTransport.remove();
+				leased.release();
+			}
+			long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime);
+			if (requestMetrics != null) {
+				currentRequestMetrics.remove();
+				boolean success = response != null && response.responseCode() == DefaultGoPluginApiResponse.SUCCESS_RESPONSE_CODE;
+				requestMetrics.record(micros, success);
+			}
+			metrics.tracing().finish(trace);
+			log.debug("operation took: {} ms", micros / 1000);
 		}
 	}
 
-	protected abstract GoPluginApiResponse handleApiRequest(String name, String body) throws IOException, ParseException;
+	public Metrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * Records work of a latest-revision request or background fetch, poll has to be passed to the client used for it.
+	 */
+	protected void finishPoll(String materialKey, PollStats poll) {
+		metrics.materials().finishPoll(materialKey, poll);
+	}
+
+	/**
+	 * Counts a latest-revision request answered with a revision background refresh keeps, without any work.
+	 */
+	protected void servedFromMemory(String materialKey) {
+		metrics.materials().servedFromMemory(materialKey);
+	}
 
 	private Map<String, Object> handlePluginConfig() {
 		Map<String, Object> wrapper = new HashMap<>();
@@ -249,6 +916,182 @@ public abstract class AbstractArtifactoryPlugin implements GoPlugin {
 		map.put("secure", Boolean.FALSE);
 		wrapper.put("connPoolSize", map);
 
+		map = new HashMap<>();
+		map.put("display-name", "Hedge Percentile");
+		map.put("default-value", "");
+		map.put("display-order", "5");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("hedgePercentile", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Max Outstanding Hedges");
+		map.put("default-value", String.valueOf(Hedging.DEFAULT_MAX_OUTSTANDING));
+		map.put("display-order", "6");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("hedgeMaxOutstanding", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Circuit Breaker Failure Threshold");
+		map.put("default-value", String.valueOf(CircuitBreakers.DEFAULT_FAILURE_THRESHOLD));
+		map.put("display-order", "7");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("circuitBreakerThreshold", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Circuit Breaker Open Millis");
+		map.put("default-value", String.valueOf(CircuitBreakers.DEFAULT_OPEN_MILLIS));
+		map.put("display-order", "8");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("circuitBreakerOpenMillis", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Not Found Cache Millis");
+		map.put("default-value", String.valueOf(NotFoundCache.DEFAULT_MILLIS));
+		map.put("display-order", "9");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("notFoundCacheMillis", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Max Concurrent Requests per Host");
+		map.put("default-value", "");
+		map.put("display-order", "10");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("maxConcurrentPerHost", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Max Requests per Second per Host");
+		map.put("default-value", "");
+		map.put("display-order", "11");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("requestsPerSecondPerHost", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Adaptive Timeout Floor");
+		map.put("default-value", String.valueOf(AdaptiveTimeouts.DEFAULT_FLOOR));
+		map.put("display-order", "12");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("adaptiveTimeoutFloor", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Adaptive Timeout Ceiling");
+		map.put("default-value", "");
+		map.put("display-order", "13");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("adaptiveTimeoutCeiling", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Settings Reload Seconds");
+		map.put("default-value", String.valueOf(DEFAULT_SETTINGS_RELOAD_SECONDS));
+		map.put("display-order", "14");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("settingsReloadSeconds", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Debug Logging");
+		map.put("default-value", "false");
+		map.put("display-order", "15");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("debugLogging", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Slow Poll Report Seconds");
+		map.put("default-value", String.valueOf(DEFAULT_SLOW_POLL_REPORT_SECONDS));
+		map.put("display-order", "16");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("slowPollReportSeconds", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Pool Pending Warn Threshold");
+		map.put("default-value", String.valueOf(DEFAULT_POOL_PENDING_WARN));
+		map.put("display-order", "17");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("poolPendingWarnThreshold", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Trace Sample Percent");
+		map.put("default-value", "0");
+		map.put("display-order", "18");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("traceSamplePercent", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Trace Slow Millis");
+		map.put("default-value", String.valueOf(Tracing.DEFAULT_SLOW_MILLIS));
+		map.put("display-order", "19");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("traceSlowMillis", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Record Workload File");
+		map.put("default-value", "");
+		map.put("display-order", "20");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("recordWorkloadFile", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Background Refresh Concurrency");
+		map.put("default-value", "0");
+		map.put("display-order", "21");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("backgroundRefreshConcurrency", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Background Refresh Max Age Seconds");
+		map.put("default-value", String.valueOf(BackgroundRefresh.DEFAULT_MAX_AGE_MILLIS / 1000));
+		map.put("display-order", "22");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("backgroundRefreshMaxAgeSeconds", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Webhook Port");
+		map.put("default-value", "0");
+		map.put("display-order", "23");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("webhookPort", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Webhook Secret");
+		map.put("default-value", "");
+		map.put("display-order", "24");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.TRUE);
+		wrapper.put("webhookSecret", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Webhook Bind Address");
+		map.put("default-value", WebhookReceiver.DEFAULT_BIND_ADDRESS);
+		map.put("display-order", "25");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("webhookBindAddress", map);
+
+		map = new HashMap<>();
+		map.put("display-name", "Listing Memo Entries");
+		map.put("default-value", String.valueOf(ListingMemo.DEFAULT_MAX_ENTRIES));
+		map.put("display-order", "26");
+		map.put("required", Boolean.FALSE);
+		map.put("secure", Boolean.FALSE);
+		wrapper.put("listingMemoEntries", map);
+
 		return wrapper;
 	}
 
@@ -263,57 +1106,118 @@ public abstract class AbstractArtifactoryPlugin implements GoPlugin {
 		return map;
 	}
 
-	private List<Object> handlePluginConfigValidation(String inputJson) throws JsonParseException, JsonMappingException, IOException {
-		Map config = new ObjectMapper().readValue(inputJson, Map.class);
-		List<Object> valiErrors = new ArrayList<>();
+	private List<ApiJson.ValidationError> handlePluginConfigValidation(ApiJson.Request request) {
+		List<ApiJson.ValidationError> valiErrors = new ArrayList<>();
 
-		config = (Map)config.get("plugin-settings");
+		Map<String, ApiJson.Property> config = request != null ? request.pluginSettings : null;
+		if (config == null) {
+			config = Collections.emptyMap();
+		}
 
 		validateTimeout(valiErrors, config, "connectTimeout");
 		validateTimeout(valiErrors, config, "socketTimeout");
 		validateTimeout(valiErrors, config, "connectionRequestTimeout");
 
-		Map proxyMap = (Map)config.get("proxyUrl");
-		if (proxyMap != null) {
-			String proxy = (String)proxyMap.get("value");
+		ApiJson.Property proxyProperty = config.get("proxyUrl");
+		if (proxyProperty != null) {
+			String proxy = proxyProperty.value;
 			try {
 				HttpHost.create(proxy);
 			} catch (Exception e) {
-				Map<String, String> error = new HashMap<>();
-				error.put("key", "proxyUrl");
-				error.put("message", e.toString());
-				valiErrors.add(error);
+				valiErrors.add(new ApiJson.ValidationError("proxyUrl", e.toString()));
 			}
 		}
 
-		Map connPoolSize = (Map)config.get("connPoolSize");
+		ApiJson.Property connPoolSize = config.get("connPoolSize");
 		if (connPoolSize != null) {
-			String connPoolSizeStr = (String)connPoolSize.get("value");
+			String connPoolSizeStr = connPoolSize.value;
 			try {
 				Integer.valueOf(connPoolSizeStr);
 			} catch (Exception e) {
-				Map<String, String> error = new HashMap<>();
-				error.put("key", "connPoolSize");
-				error.put("message", "Must be an integer");
-				valiErrors.add(error);
+				valiErrors.add(new ApiJson.ValidationError("connPoolSize", "Must be an integer"));
+			}
+		}
+
+		ApiJson.Property hedgePercentile = config.get("hedgePercentile");
+		if (hedgePercentile != null) {
+			String hedgePercentileStr = hedgePercentile.value;
+			if (hedgePercentileStr != null && !hedgePercentileStr.isEmpty()) {
+				boolean valid;
+				try {
+					double percentile = Double.parseDouble(hedgePercentileStr);
+					valid = percentile > 0 && percentile < 100;
+				} catch (Exception e) {
+					valid = false;
+				}
+				if (!valid) {
+					valiErrors.add(new ApiJson.ValidationError("hedgePercentile", "Must be a number between 0 and 100"));
+				}
 			}
 		}
 
+		String traceSamplePercent = ApiJson.Request.value(config, "traceSamplePercent");
+		if (traceSamplePercent != null && !traceSamplePercent.isEmpty()) {
+			boolean valid;
+			try {
+				double percent = Double.parseDouble(traceSamplePercent);
+				valid = percent >= 0 && percent <= 100;
+			} catch (Exception e) {
+				valid = false;
+			}
+			if (!valid) {
+				valiErrors.add(new ApiJson.ValidationError("traceSamplePercent", "Must be a number from 0 to 100"));
+			}
+		}
+
+		validateInteger(valiErrors, config, "hedgeMaxOutstanding", 1);
+		validateInteger(valiErrors, config, "circuitBreakerThreshold", 0);
+		validateInteger(valiErrors, config, "circuitBreakerOpenMillis", 0);
+		validateInteger(valiErrors, config, "notFoundCacheMillis", 0);
+		validateInteger(valiErrors, config, "maxConcurrentPerHost", 0);
+		validateInteger(valiErrors, config, "requestsPerSecondPerHost", 0);
+		validateInteger(valiErrors, config, "adaptiveTimeoutFloor", 1);
+		validateInteger(valiErrors, config, "adaptiveTimeoutCeiling", 0);
+		validateInteger(valiErrors, config, "settingsReloadSeconds", 0);
+		validateInteger(valiErrors, config, "slowPollReportSeconds", 0);
+		validateInteger(valiErrors, config, "poolPendingWarnThreshold", 0);
+		validateInteger(valiErrors, config, "traceSlowMillis", 0);
+		validateInteger(valiErrors, config, "backgroundRefreshConcurrency", 0);
+		validateInteger(valiErrors, config, "backgroundRefreshMaxAgeSeconds", 1);
+		validateInteger(valiErrors, config, "webhookPort", 0);
+		validateInteger(valiErrors, config, "listingMemoEntries", 0);
+		String floor = ApiJson.Request.value(config, "adaptiveTimeoutFloor");
+		String ceiling = ApiJson.Request.value(config, "adaptiveTimeoutCeiling");
+		try {
+			if (Integer.parseInt(floor) > Integer.parseInt(ceiling)) {
+				valiErrors.add(new ApiJson.ValidationError("adaptiveTimeoutFloor", "Must not be greater than ceiling"));
+			}
+		} catch (NumberFormatException e) {
+			// not both set or already reported
+		}
+
 		return valiErrors;
 	}
 
-	private void validateTimeout(List<Object> valiErrors, Map config, String key) {
-		String value = null;
-		Map valueMap = (Map)config.get(key);
-		if (valueMap != null) {
-			value = (String)valueMap.get("value");
+	private void validateInteger(List<ApiJson.ValidationError> valiErrors, Map<String, ApiJson.Property> config, String key, int min) {
+		String value = ApiJson.Request.value(config, key);
+		if (value != null && !value.isEmpty()) {
+			boolean valid;
+			try {
+				valid = Integer.parseInt(value) >= min;
+			} catch (Exception e) {
+				valid = false;
+			}
+			if (!valid) {
+				valiErrors.add(new ApiJson.ValidationError(key, "Must be an integer >= " + min));
+			}
 		}
-		logger.debug("validating '" + key + "' = '" + value + "'");
+	}
+
+	private void validateTimeout(List<ApiJson.ValidationError> valiErrors, Map<String, ApiJson.Property> config, String key) {
+		String value = ApiJson.Request.value(config, key);
+		log.debug("validating '{}' = '{}'", key, value);
 		if (!validateTimeoutValue(value)) {
-			Map<String, String> error = new HashMap<>();
-			error.put("key", key);
-			error.put("message", "Invalid timeout value. Must be an integer > 0 or -1.");
-			valiErrors.add(error);
+			valiErrors.add(new ApiJson.ValidationError(key, "Invalid timeout value. Must be an integer > 0 or -1."));
 		}
 	}
 
@@ -333,12 +1237,9 @@ public abstract class AbstractArtifactoryPlugin implements GoPlugin {
 		return false;
 	}
 
-	protected void addValidationErrors(List<Object> listOfMaps, String key, List<String> errors) {
+	protected void addValidationErrors(List<ApiJson.ValidationError> valiErrors, String key, List<String> errors) {
 		for (String msg : errors) {
-			Map<String, String> error = new HashMap<>();
-			error.put("key", key);
-			error.put("message", msg);
-			listOfMaps.add(error);
+			valiErrors.add(new ApiJson.ValidationError(key, msg));
 		}
 	}
 
@@ -369,11 +1270,17 @@ public abstract class AbstractArtifactoryPlugin implements GoPlugin {
 	}
 
 	protected GoPluginApiResponse toJson(Object data) throws JsonProcessingException {
-		String json = data == null ? null : new ObjectMapper().writeValueAsString(data);
+		long encodeStart = Trace.start();
+		String json = data == null ? null : ApiJson.WRITER.writeValueAsString(data);
+		Trace.end("encode", null, encodeStart);
+		return jsonResponse(json);
+	}
+
+	protected GoPluginApiResponse jsonResponse(String json) {
 		DefaultGoPluginApiResponse response = new DefaultGoPluginApiResponse(DefaultGoPluginApiResponse.SUCCESS_RESPONSE_CODE);
 		response.setResponseBody(json);
 
-		logger.debug("sending back json: " + json);
+		log.debug("sending back json: {}", DiagnosticLog.debugBody(json));
 
 		return response;
 	}
@@ -386,7 +1293,7 @@ public abstract class AbstractArtifactoryPlugin implements GoPlugin {
 		msg.append(requestName);
 		msg.append("\n\t");
 		msg.append("request body: ");
-		msg.append(requestBody);
+		msg.append(DiagnosticLog.body(requestBody));
 		logger.error(msg.toString(), e);
 		String json = e.toString();
 		DefaultGoPluginApiResponse response = new DefaultGoPluginApiResponse(DefaultGoPluginApiResponse.INTERNAL_ERROR);
@@ -394,65 +1301,73 @@ public abstract class AbstractArtifactoryPlugin implements GoPlugin {
 		return response;
 	}
 
-	protected String configValue(Map config, String apiKey, String key) {
-		if (config != null) {
-			Map keysMap = (Map)config.get(apiKey);
-			if (keysMap != null) {
-				Map innerMap = (Map)keysMap.get(key);
-				if (innerMap != null) {
-					return (String)innerMap.get("value");
-				}
-			}
-		}
-		return null;
+	protected Date dateFromApiInput(Map input) {
+		return dateFromApiInput(ApiJson.MAPPER.convertValue(input, ApiJson.Request.class));
 	}
 
-	protected Date dateFromApiInput(Map input) {
-		Map keysMap = (Map)input.get("previous-revision");
-		String timestamp = (String) keysMap.get("timestamp");
+	protected Date dateFromApiInput(ApiJson.Request input) {
+		ApiJson.RevisionRef previousRevision = input.previousRevision;
+		String timestamp = previousRevision != null ? previousRevision.timestamp : null;
 		try {
 			return GO_DATE_FORMATTER.parseDateTime(timestamp).toDate();
 		} catch (Exception e) {
-			logger.warn("could not parse date: '" + timestamp + "', json map: " + keysMap);
+			logger.warn("could not parse date: '" + timestamp + "'");
 			logger.debug(e.getMessage(), e);
 		}
 		return new Date(0);
 	}
 
-	protected String targetDirFromApiInput(Map input) {
-		return (String) input.get("destination-folder");
+	protected String targetDirFromApiInput(ApiJson.Request input) {
+		return input.destinationFolder;
 	}
 
-	protected String revisonFromApiInput(Map input) {
-		Map keysMap = (Map)input.get("revision");
-		return (String) keysMap.get("revision");
+	protected String revisonFromApiInput(ApiJson.Request input) {
+		return input.revision.revision;
 	}
 
-	protected Map<String, Object> buildRevisionJson(Revision rev) {
-		Map<String, Object> map = new HashMap<>();
-		map.put("revision", rev.revision);
-		map.put("timestamp", GO_DATE_FORMAT.format(rev.timestamp));
-		map.put("revisionComment", rev.comment);
+	protected String revisionDataFromApiInput(ApiJson.Request input, String key) {
+		Map<String, String> data = input.revision != null ? input.revision.data : null;
+		return data != null ? data.get(key) : null;
+	}
+
+	/**
+	 * @return data with file manifest of revision, null if files are not known or too many
+	 */
+	protected Map<String, String> revisionData(Revision rev) {
+		String manifest = FileManifest.encode(rev.manifest);
+		if (manifest == null) {
+			return null;
+		}
+		Map<String, String> data = new HashMap<>();
+		data.put(FileManifest.DATA_KEY, manifest);
+		return data;
+	}
+
+	protected ApiJson.RevisionJson buildRevisionJson(Revision rev) {
+		ApiJson.RevisionJson json = new ApiJson.RevisionJson();
+		json.revision = rev.revision;
+		json.timestamp = formatTimestamp(rev.timestamp);
+		json.revisionComment = rev.comment;
 		if (rev.files != null) {
-			List<Object> files = new ArrayList<>(rev.files.size());
+			List<ApiJson.ModifiedFile> files = new ArrayList<>(rev.files.size());
 			for (String filename : rev.files) {
-				Map<String, String> file = new HashMap<>();
-				file.put("fileName", filename);
-				file.put("action", "added");
-				files.add(file);
-			}
-			if (!files.isEmpty()) {
-				map.put("modifiedFiles", files);
+				files.add(new ApiJson.ModifiedFile(filename));
 			}
+			json.modifiedFiles = files;
 		}
-		return map;
+		json.data = revisionData(rev);
+		return json;
+	}
+
+	protected String formatTimestamp(Date date) {
+		return GO_DATE_FORMATTER.print(date.getTime());
 	}
 
-	protected Map<String, Object> checkConnection(String url, String pattern, UserPw userPw) {
+	protected ApiJson.Status checkConnection(String url, String pattern, UserPw userPw) {
 		return checkConnection(url, pattern, userPw, true);
 	}
-	protected Map<String, Object> checkConnection(String url, String pattern, UserPw userPw, boolean directory) {
-		logger.debug("checking connection to: " + url);
+	protected ApiJson.Status checkConnection(String url, String pattern, UserPw userPw, boolean directory) {
+		log.debug("checking connection to: {}", url);
 		String status = "fail";
 		List<String> messages = new ArrayList<>();
 
@@ -470,11 +1385,11 @@ public abstract class AbstractArtifactoryPlugin implements GoPlugin {
 				String msgOk;
 				String msgFail;
 				if (!directory) {
-					foundChild = new ArtifactoryClient().checkFiles(url, pattern, httpClient, userPw);
+					foundChild = artifactoryClient().checkFiles(url, pattern, httpClient(), userPw);
 					msgOk = "Successfully found file " + foundChild;
 					msgFail = "could not find files matching pattern";
 				} else {
-					foundChild = new ArtifactoryClient().checkSubDirs(url, pattern, httpClient, userPw);
+					foundChild = artifactoryClient().checkSubDirs(url, pattern, httpClient(), userPw);
 					msgOk = "Successfully found directory " + foundChild;
 					msgFail = "could not find sub-dirs in provided url";
 				}
@@ -491,10 +1406,7 @@ public abstract class AbstractArtifactoryPlugin implements GoPlugin {
 			messages.add(message);
 		}
 
-		Map<String, Object> map = new HashMap<>();
-		map.put("status", status);
-		map.put("messages", messages);
-		return map;
+		return new ApiJson.Status(status, messages);
 	}
 
 	protected boolean isTrue(String value) {
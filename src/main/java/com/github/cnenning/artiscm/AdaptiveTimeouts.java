@@ -0,0 +1,61 @@
+package com.github.cnenning.artiscm;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.github.cnenning.artiscm.ArtifactoryClient.RequestType;
+
+/**
+ * Derives socket timeouts from observed latency (time until response headers arrived) per host and request type.
+ * Timeouts are a multiple of a high percentile, bounded by floor and ceiling.
+ * Until enough samples are available the ceiling is used.
+ * {@link ArtifactoryClient} only applies them to listings.
+ */
+public class AdaptiveTimeouts {
+
+	public static final int DEFAULT_FLOOR = 100;
+	public static final double PERCENTILE = 99;
+	public static final int MULTIPLIER = 3;
+	public static final int MIN_SAMPLES = 20;
+	private static final int SAMPLE_SIZE = 500;
+
+	private final int floor;
+	private final int ceiling;
+	private final ConcurrentMap<String, LatencyTracker> latencies = new ConcurrentHashMap<>();
+
+	public AdaptiveTimeouts(int floor, int ceiling) {
+		this.floor = Math.max(1, floor);
+		this.ceiling = Math.max(this.floor, ceiling);
+	}
+
+	public int socketTimeout(String host, RequestType type) {
+		LatencyTracker tracker = latencies.get(key(host, type));
+		if (tracker == null || tracker.count() < MIN_SAMPLES) {
+			return ceiling;
+		}
+		long timeout = tracker.percentile(PERCENTILE) * MULTIPLIER;
+		return (int) Math.max(floor, Math.min(ceiling, timeout));
+	}
+
+	public void record(String host, RequestType type, long millis) {
+		String key = key(host, type);
+		LatencyTracker tracker = latencies.get(key);
+		if (tracker == null) {
+			LatencyTracker newTracker = new LatencyTracker(SAMPLE_SIZE);
+			tracker = latencies.putIfAbsent(key, newTracker);
+			if (tracker == null) {
+				tracker = newTracker;
+			}
+		}
+		tracker.record(millis);
+	}
+
+	public long percentile(String host, RequestType type, double percentile) {
+		LatencyTracker tracker = latencies.get(key(host, type));
+		return tracker != null ? tracker.percentile(percentile) : -1;
+	}
+
+	private String key(String host, RequestType type) {
+		return type + " " + host;
+	}
+}
@@ -0,0 +1,191 @@
+package com.github.cnenning.artiscm;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps concurrent requests and requests per second of each host.
+ * Waiting requests are queued per material and served round robin, so a material with many requests
+ * (e.g. a checkout of many files) cannot starve the others.
+ */
+public class AdmissionControl {
+
+	public static final long MAX_WAIT_MILLIS = 60000;
+
+	private final int maxConcurrent;
+	private final double permitsPerSecond;
+	private final ConcurrentMap<String, HostQueue> hosts = new ConcurrentHashMap<>();
+
+	/**
+	 * @param maxConcurrent max requests in flight per host, 0 for no limit
+	 * @param permitsPerSecond max requests started per second per host, 0 for no limit
+	 */
+	public AdmissionControl(int maxConcurrent, double permitsPerSecond) {
+		this.maxConcurrent = maxConcurrent;
+		this.permitsPerSecond = permitsPerSecond;
+	}
+
+	/**
+	 * Blocks until request may be sent. Caller must {@link #release(String)} afterwards.
+	 */
+	public void acquire(String host, String material) throws IOException {
+		forHost(host).acquire(material != null ? material : "");
+	}
+
+	public void release(String host) {
+		forHost(host).release();
+	}
+
+	public int queued(String host) {
+		HostQueue queue = hosts.get(host);
+		return queue != null ? queue.queued() : 0;
+	}
+
+	private HostQueue forHost(String host) {
+		HostQueue queue = hosts.get(host);
+		if (queue == null) {
+			HostQueue newQueue = new HostQueue();
+			queue = hosts.putIfAbsent(host, newQueue);
+			if (queue == null) {
+				queue = newQueue;
+			}
+		}
+		return queue;
+	}
+
+	private static class Waiter {
+		boolean admitted;
+	}
+
+	private class HostQueue {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition changed = lock.newCondition();
+		/** waiters per material, iteration order is round robin order */
+		private final Map<String, Deque<Waiter>> waiting = new LinkedHashMap<>();
+		private int queued;
+		private int inFlight;
+		private double tokens = Math.max(1, permitsPerSecond);
+		private long lastRefill = System.nanoTime();
+
+		void acquire(String material) throws IOException {
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_WAIT_MILLIS);
+			Waiter waiter = new Waiter();
+			lock.lock();
+			try {
+				Deque<Waiter> deque = waiting.get(material);
+				if (deque == null) {
+					deque = new ArrayDeque<>();
+					waiting.put(material, deque);
+				}
+				deque.add(waiter);
+				queued++;
+				while (true) {
+					long waitNanos = dispatch();
+					if (waiter.admitted) {
+						return;
+					}
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						remove(material, waiter);
+						throw new IOException("no admission to host within " + MAX_WAIT_MILLIS + " ms, " + queued + " requests queued");
+					}
+					try {
+						changed.awaitNanos(waitNanos > 0 ? Math.min(waitNanos, remaining) : remaining);
+					} catch (InterruptedException e) {
+						if (!waiter.admitted) {
+							remove(material, waiter);
+						} else {
+							inFlight--;
+							changed.signalAll();
+						}
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("interrupted while waiting for admission");
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void release() {
+			lock.lock();
+			try {
+				inFlight--;
+				dispatch();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		int queued() {
+			lock.lock();
+			try {
+				return queued;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Admits as many waiters as limits allow, one per material in turn.
+		 * @return nanos until next token is available if waiters are left because of rate limit, 0 otherwise
+		 */
+		private long dispatch() {
+			boolean admittedAny = false;
+			long waitNanos = 0;
+			while (queued > 0 && (maxConcurrent <= 0 || inFlight < maxConcurrent)) {
+				if (permitsPerSecond > 0) {
+					refill();
+					if (tokens < 1) {
+						waitNanos = (long) ((1 - tokens) / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+						break;
+					}
+					tokens--;
+				}
+				Iterator<Map.Entry<String, Deque<Waiter>>> iterator = waiting.entrySet().iterator();
+				Map.Entry<String, Deque<Waiter>> entry = iterator.next();
+				Deque<Waiter> deque = entry.getValue();
+				deque.poll().admitted = true;
+				queued--;
+				inFlight++;
+				admittedAny = true;
+				// move material to end of round robin order
+				iterator.remove();
+				if (!deque.isEmpty()) {
+					waiting.put(entry.getKey(), deque);
+				}
+			}
+			if (admittedAny) {
+				changed.signalAll();
+			}
+			return waitNanos;
+		}
+
+		private void refill() {
+			long now = System.nanoTime();
+			double burst = Math.max(1, permitsPerSecond);
+			tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+			lastRefill = now;
+		}
+
+		private void remove(String material, Waiter waiter) {
+			Deque<Waiter> deque = waiting.get(material);
+			if (deque != null && deque.remove(waiter)) {
+				queued--;
+				if (deque.isEmpty()) {
+					waiting.remove(material);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package com.github.cnenning.artiscm;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Typed bodies of go plugin API requests and responses together with shared, thread-safe readers and writers.
+ */
+public class ApiJson {
+
+	public static final ObjectMapper MAPPER = new ObjectMapper();
+	public static final ObjectReader REQUEST_READER = MAPPER.readerFor(Request.class);
+	public static final ObjectReader MAP_READER = MAPPER.readerFor(Map.class);
+	public static final ObjectWriter WRITER = MAPPER.writer();
+
+	private ApiJson() {
+	}
+
+	/**
+	 * Union of all request bodies sent by go, unused parts stay null.
+	 */
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class Request {
+		@JsonProperty("scm-configuration")
+		public Map<String, Property> scmConfiguration;
+		@JsonProperty("repository-configuration")
+		public Map<String, Property> repositoryConfiguration;
+		@JsonProperty("package-configuration")
+		public Map<String, Property> packageConfiguration;
+		@JsonProperty("plugin-settings")
+		public Map<String, Property> pluginSettings;
+		@JsonProperty("previous-revision")
+		public RevisionRef previousRevision;
+		@JsonProperty("revision")
+		public RevisionRef revision;
+		@JsonProperty("destination-folder")
+		public String destinationFolder;
+
+		public static String value(Map<String, Property> config, String key) {
+			if (config != null) {
+				Property property = config.get(key);
+				if (property != null) {
+					return property.value;
+				}
+			}
+			return null;
+		}
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class Property {
+		public String value;
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class RevisionRef {
+		public String revision;
+		public String timestamp;
+		public Map<String, String> data;
+	}
+
+	public static class RevisionJson {
+		public String revision;
+		public String timestamp;
+		public String revisionComment;
+		@JsonInclude(JsonInclude.Include.NON_EMPTY)
+		public List<ModifiedFile> modifiedFiles;
+		@JsonInclude(JsonInclude.Include.NON_NULL)
+		public Map<String, String> data;
+	}
+
+	public static class ModifiedFile {
+		public final String fileName;
+		public final String action = "added";
+
+		public ModifiedFile(String fileName) {
+			this.fileName = fileName;
+		}
+	}
+
+	public static class LatestRevision {
+		public final RevisionJson revision;
+
+		public LatestRevision(RevisionJson revision) {
+			this.revision = revision;
+		}
+	}
+
+	public static class LatestRevisions {
+		public final List<RevisionJson> revisions;
+
+		public LatestRevisions(List<RevisionJson> revisions) {
+			this.revisions = revisions;
+		}
+	}
+
+	public static class Status {
+		public final String status;
+		public final List<String> messages;
+
+		public Status(String status, List<String> messages) {
+			this.status = status;
+			this.messages = messages;
+		}
+
+		public Status(String status, String message) {
+			this(status, Collections.singletonList(message));
+		}
+	}
+
+	public static class ValidationError {
+		public final String key;
+		public final String message;
+
+		public ValidationError(String key, String message) {
+			this.key = key;
+			this.message = message;
+		}
+	}
+
+	/**
+	 * Writes a {@link LatestRevisions} body revision by revision, without building an object tree first.
+	 * Output equals serialization of {@link RevisionJson}.
+	 */
+	public static class RevisionsWriter {
+		private final StringWriter out = new StringWriter();
+		private final JsonGenerator generator;
+
+		public RevisionsWriter() throws IOException {
+			generator = MAPPER.getFactory().createGenerator(out);
+			generator.writeStartObject();
+			generator.writeArrayFieldStart("revisions");
+		}
+
+		public void write(String revision, String timestamp, String revisionComment, List<String> files) throws IOException {
+			write(revision, timestamp, revisionComment, files, null);
+		}
+
+		public void write(String revision, String timestamp, String revisionComment, List<String> files, Map<String, String> data)
+				throws IOException {
+			generator.writeStartObject();
+			generator.writeStringField("revision", revision);
+			generator.writeStringField("timestamp", timestamp);
+			generator.writeStringField("revisionComment", revisionComment);
+			if (files != null && !files.isEmpty()) {
+				generator.writeArrayFieldStart("modifiedFiles");
+				for (String fileName : files) {
+					generator.writeStartObject();
+					generator.writeStringField("fileName", fileName);
+					generator.writeStringField("action", "added");
+					generator.writeEndObject();
+				}
+				generator.writeEndArray();
+			}
+			if (data != null) {
+				generator.writeObjectFieldStart("data");
+				for (Map.Entry<String, String> entry : data.entrySet()) {
+					generator.writeStringField(entry.getKey(), entry.getValue());
+				}
+				generator.writeEndObject();
+			}
+			generator.writeEndObject();
+		}
+
+		/**
+		 * @return complete json, writer must not be used afterwards
+		 */
+		public String finish() throws IOException {
+			generator.writeEndArray();
+			generator.writeEndObject();
+			generator.close();
+			return out.toString();
+		}
+	}
+}
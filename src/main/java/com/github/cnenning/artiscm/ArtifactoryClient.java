@@ -1,11 +1,17 @@
 package com.github.cnenning.artiscm;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.UnsupportedEncodingException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
 import java.net.URLEncoder;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -13,16 +19,28 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.Configurable;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.util.EntityUtils;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
@@ -38,8 +56,93 @@ import com.thoughtworks.go.plugin.api.logging.Logger;
 public class ArtifactoryClient {
 
 	protected Logger logger = Logger.getLoggerFor(getClass());
+	protected DiagnosticLog log = new DiagnosticLog(logger);
+
+	protected final Hedging hedging;
+	protected final CircuitBreakers circuitBreakers;
+	protected final AdmissionControl admissionControl;
+	protected final AdaptiveTimeouts adaptiveTimeouts;
+
+	/** material requests are sent for, used for fair queueing */
+	protected String material;
+
+	protected RequestMetrics metrics;
+
+	protected PollStats poll;
+
+	protected ClientEvents events = ClientEvents.INSTANCE;
+
+	protected WorkloadRecorder recorder;
+
+	protected ListingMemo listingMemo;
+
+	protected NotFoundCache notFoundCache;
+
+	public ArtifactoryClient() {
+		this(null, null, null, null);
+	}
+
+	public ArtifactoryClient(Hedging hedging, CircuitBreakers circuitBreakers, AdmissionControl admissionControl, AdaptiveTimeouts adaptiveTimeouts) {
+		this.hedging = hedging;
+		this.circuitBreakers = circuitBreakers;
+		this.admissionControl = admissionControl;
+		this.adaptiveTimeouts = adaptiveTimeouts;
+	}
+
+	public ArtifactoryClient forMaterial(String material) {
+		this.material = material;
+		return this;
+	}
+
+	/**
+	 * @param metrics of go request this client works for, may be null
+	 */
+	public ArtifactoryClient withMetrics(RequestMetrics metrics) {
+		this.metrics = metrics;
+		return this;
+	}
+
+	/**
+	 * @param poll stats of material poll this client works for, may be null
+	 */
+	public ArtifactoryClient withPoll(PollStats poll) {
+		this.poll = poll;
+		return this;
+	}
+
+	/**
+	 * @param recorder gets raw listing responses, may be null
+	 */
+	public ArtifactoryClient withRecorder(WorkloadRecorder recorder) {
+		this.recorder = recorder;
+		return this;
+	}
+
+	/**
+	 * @param listingMemo reuses results of unchanged listings, may be null
+	 */
+	public ArtifactoryClient withListingMemo(ListingMemo listingMemo) {
+		this.listingMemo = listingMemo;
+		return this;
+	}
+
+	/**
+	 * @param notFoundCache skips listings recently answered with 404, may be null
+	 */
+	public ArtifactoryClient withNotFoundCache(NotFoundCache notFoundCache) {
+		this.notFoundCache = notFoundCache;
+		return this;
+	}
 
 	public void downloadFiles(String url, HttpClient client, UserPw userPw, File targetDir, String patternStr) throws ClientProtocolException, IOException {
+		downloadFiles(url, client, userPw, targetDir, patternStr, null);
+	}
+
+	/**
+	 * @param manifest files of revision as listed at poll time, files are listed again if null
+	 */
+	public void downloadFiles(String url, HttpClient client, UserPw userPw, File targetDir, String patternStr, List<Revision> manifest)
+			throws ClientProtocolException, IOException {
 		// add trailing slash
 		if (!url.endsWith("/")) {
 			url += "/";
@@ -50,7 +153,7 @@ public class ArtifactoryClient {
 			pattern = Pattern.compile(patternStr);
 		}
 
-		List<Revision> files = files(url, client, userPw);
+		List<Revision> files = manifest != null ? manifest : files(url, client, userPw);
 		for (Revision rev : files) {
 			String filename = rev.revision;
 			if (pattern != null) {
@@ -65,16 +168,57 @@ public class ArtifactoryClient {
 
 			logger.info("downloading " + completeUrl);
 
-			HttpGet httpget = new HttpGet(completeUrl);
-			configureMethod(httpget, userPw);
-			HttpResponse response = client.execute(httpget);
-			try {
-				InputStream contentStream = response.getEntity().getContent();
-				FileOutputStream outStream = new FileOutputStream(new File(targetDir, rev.revision));
-				IOUtils.copy(contentStream, outStream);
-			} finally {
-				EntityUtils.consumeQuietly(response.getEntity());
-			}
+			final File targetFile = new File(targetDir, rev.revision);
+			final String fileUrl = completeUrl;
+			final long expectedSize = rev.size;
+			execute(newGet(completeUrl, userPw), client, RequestType.DOWNLOAD, new ResponseHandler<Void>() {
+				@Override
+				public Void handleResponse(HttpResponse response) throws IOException {
+					Object event = events.downloadStarted();
+					long traceStart = Trace.start();
+					InputStream contentStream = response.getEntity().getContent();
+					long bytes;
+					try (FileOutputStream outStream = new FileOutputStream(targetFile)) {
+						bytes = IOUtils.copyLarge(contentStream, outStream);
+					}
+					countBytes(bytes);
+					if (expectedSize >= 0 && bytes != expectedSize) {
+						logger.warn("size of " + fileUrl + " differs from listing at poll time: " + bytes + " instead of " + expectedSize + " bytes");
+					}
+					Trace.end("download", fileUrl, traceStart);
+					if (event != null) {
+						events.downloadFinished(event, fileUrl, targetFile.getName(), bytes);
+					}
+					return null;
+				}
+			});
+		}
+	}
+
+	private void countHttpCall() {
+		if (metrics != null) {
+			metrics.httpCall();
+		}
+		if (poll != null) {
+			poll.httpCall();
+		}
+	}
+
+	private void countBytes(long bytes) {
+		if (metrics != null) {
+			metrics.httpBytes(bytes);
+		}
+		if (poll != null) {
+			poll.bytes(bytes);
+		}
+	}
+
+	private void countEntries(int entries) {
+		if (metrics != null) {
+			metrics.parsedEntries(entries);
+		}
+		if (poll != null) {
+			poll.entries(entries);
 		}
 	}
 
@@ -113,29 +257,366 @@ public class ArtifactoryClient {
 		return latest != null ? latest.revision : null;
 	}
 
+	protected String withTrailingSlash(String url) {
+		return url.endsWith("/") ? url : url + "/";
+	}
+
+	/**
+	 * Fetches listing and passes it to callback. If listing memo is enabled and callback is a
+	 * {@link MemoizedCallback}, parsing is skipped while the listing body has same hash as before.
+	 */
+	@SuppressWarnings("unchecked")
 	protected <T> T downloadHtml(String url, HttpClient client, UserPw userPw, Callback<T> callback) throws ClientProtocolException, IOException {
-		// add trailing slash
-		if (!url.endsWith("/")) {
-			url += "/";
+		url = withTrailingSlash(url);
+
+		Listing listing = hedging != null
+			? fetchListingHedged(url, client, userPw)
+			: fetchListing(newGet(url, userPw), url, client);
+
+		if (listing.hash != null && callback instanceof MemoizedCallback) {
+			MemoizedCallback<T> memoized = (MemoizedCallback<T>) callback;
+			long lookupStart = System.nanoTime();
+			MemoizedResult remembered = (MemoizedResult) listingMemo.result(url, listing.hash, memoized.key);
+			if (remembered != null) {
+				log.debug("listing unchanged, skipped parsing: {}", url);
+				T copy = memoized.copy((T) remembered.result);
+				// count entries as if parsed, request metrics and poll stats must not depend on memo hits
+				countEntries(remembered.entries);
+				if (poll != null) {
+					poll.parsed(System.nanoTime() - lookupStart);
+				}
+				return copy;
+			}
+			Document document = document(listing, url);
+			T result = memoized.callback(url, client, document);
+			int entries = document.select("a").size();
+			listingMemo.remember(url, listing.hash, memoized.key, new MemoizedResult(memoized.copy(result), entries));
+			return result;
 		}
+		return callback.callback(url, client, document(listing, url));
+	}
 
+	private Document document(Listing listing, String url) throws IOException {
+		return listing.document != null
+			? listing.document
+			: parse(new ByteArrayInputStream(listing.body), listing.charsetName, url);
+	}
+
+	protected HttpGet newGet(String url, UserPw userPw) {
 		HttpGet httpget = new HttpGet(url);
 		configureMethod(httpget, userPw);
-		HttpResponse response = client.execute(httpget);
+		return httpget;
+	}
+
+	/**
+	 * Executes request through circuit breaker and admission control of its host, if there are any.
+	 * Connection errors and 5xx status codes count as failures of the circuit breaker.
+	 * With adaptive timeouts the socket timeout of listings is derived from latency of previous listings. Downloads keep
+	 * the configured socket timeout, time to headers says nothing about stalls while streaming a large artifact.
+	 * Response gets consumed after handler returned.
+	 */
+	protected <T> T execute(HttpGet httpget, HttpClient client, RequestType type, ResponseHandler<T> handler) throws ClientProtocolException, IOException {
+		String host = httpget.getURI().getHost();
+		int socketTimeout = -1;
+		boolean adaptTimeout = adaptiveTimeouts != null && type == RequestType.LISTING;
+		if (adaptTimeout) {
+			socketTimeout = adaptiveTimeouts.socketTimeout(host, type);
+			RequestConfig baseConfig = client instanceof Configurable
+				? ((Configurable) client).getConfig()
+				: null;
+			httpget.setConfig(RequestConfig.copy(baseConfig != null ? baseConfig : RequestConfig.DEFAULT)
+				.setSocketTimeout(socketTimeout)
+				.build());
+		}
+		CircuitBreaker breaker = null;
+		if (circuitBreakers != null) {
+			breaker = circuitBreakers.forHost(host);
+			if (!breaker.allowRequest()) {
+				throw new CircuitOpenException(host, breaker.retryAfter());
+			}
+		}
+		if (admissionControl != null) {
+			try {
+				admissionControl.acquire(host, material);
+			} catch (IOException e) {
+				if (breaker != null) {
+					breaker.recordIgnored();
+				}
+				throw e;
+			}
+		}
+		Object event = events.httpStarted();
+		int status = -1;
+		CountingEntity countingEntity = null;
+		Exception failure = null;
+		try {
+			HttpResponse response;
+			long startTime = System.currentTimeMillis();
+			long traceStart = Trace.start();
+			countHttpCall();
+			try {
+				response = client.execute(httpget);
+			} catch (SocketTimeoutException e) {
+				if (breaker != null) {
+					breaker.recordFailure();
+				}
+				if (adaptTimeout) {
+					// let timeouts grow if they are too tight
+					adaptiveTimeouts.record(host, type, socketTimeout);
+				}
+				throw e;
+			} catch (IOException | RuntimeException e) {
+				if (breaker != null) {
+					if (httpget.isAborted()) {
+						breaker.recordIgnored();
+					} else {
+						breaker.recordFailure();
+					}
+				}
+				throw e;
+			}
+			Trace.end("http", httpget.getURI().toString(), traceStart);
+			if (adaptTimeout) {
+				adaptiveTimeouts.record(host, type, System.currentTimeMillis() - startTime);
+			}
+			status = response.getStatusLine().getStatusCode();
+			if (event != null && response.getEntity() != null) {
+				countingEntity = new CountingEntity(response.getEntity());
+				response.setEntity(countingEntity);
+			}
+			try {
+				if (breaker != null) {
+					if (status >= 500) {
+						breaker.recordFailure();
+					} else {
+						breaker.recordSuccess();
+					}
+				}
+				return handler.handleResponse(response);
+			} finally {
+				EntityUtils.consumeQuietly(response.getEntity());
+			}
+		} catch (IOException | RuntimeException e) {
+			failure = e;
+			throw e;
+		} finally {
+			if (event != null) {
+				// committed for failed requests as well, with status -1 if there was no response
+				events.httpFinished(event, urlTemplate(httpget), type.name(), status,
+						countingEntity != null ? countingEntity.byteCount() : 0, failure != null ? failure.getClass().getName() : null);
+			}
+			if (admissionControl != null) {
+				admissionControl.release(host);
+			}
+		}
+	}
+
+	/**
+	 * @return material the request was sent for, to group requests of versions, or url without query
+	 */
+	protected String urlTemplate(HttpGet httpget) {
+		if (material != null) {
+			return material;
+		}
+		URI uri = httpget.getURI();
+		return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() > 0 ? ":" + uri.getPort() : "") + uri.getPath();
+	}
+
+	/**
+	 * Counts bytes read from response body, only used while flight recorder events are recorded.
+	 */
+	protected static class CountingEntity extends HttpEntityWrapper {
+		private CountingInputStream content;
+
+		public CountingEntity(HttpEntity wrapped) {
+			super(wrapped);
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			if (content == null) {
+				content = new CountingInputStream(super.getContent());
+			}
+			return content;
+		}
+
+		public long byteCount() {
+			return content != null ? content.getByteCount() : 0;
+		}
+	}
+
+	protected Listing fetchListing(HttpGet httpget, final String url, HttpClient client) throws ClientProtocolException, IOException {
+		if (notFoundCache != null && notFoundCache.isKnownNotFound(url)) {
+			throw new IOException("status code: 404 (cached)");
+		}
+		return execute(httpget, client, RequestType.LISTING, new ResponseHandler<Listing>() {
+			@Override
+			public Listing handleResponse(HttpResponse response) throws IOException {
+				int statusCode = response.getStatusLine().getStatusCode();
+				if (statusCode == 404 && notFoundCache != null) {
+					notFoundCache.remember(url);
+				}
+				if (statusCode > 399) {
+					if (recorder != null) {
+						recorder.listing(url, statusCode, null, null);
+					}
+					throw new IOException("status code: " + statusCode);
+				}
+				String charsetName = charsetName(response);
+				InputStream rawStream = response.getEntity().getContent();
+				boolean memoEnabled = listingMemo != null && listingMemo.isEnabled();
+				if (recorder != null || memoEnabled) {
+					// keep raw body for recording and hash it while reading, parse it afterwards
+					MessageDigest digest = ListingMemo.digest();
+					byte[] body = IOUtils.toByteArray(new DigestInputStream(rawStream, digest));
+					countBytes(body.length);
+					if (recorder != null) {
+						recorder.listing(url, statusCode, charsetName, new String(body, charsetName != null ? charsetName : "UTF-8"));
+					}
+					if (memoEnabled) {
+						return new Listing(body, charsetName, digest.digest());
+					}
+					return new Listing(parse(new ByteArrayInputStream(body), charsetName, url));
+				}
+				CountingInputStream contentStream = new CountingInputStream(rawStream);
+				Document document = parse(contentStream, charsetName, url);
+				countBytes(contentStream.getByteCount());
+				return new Listing(document);
+			}
+		});
+	}
+
+	protected Document parse(InputStream stream, String charsetName, String url) throws IOException {
+		CountingInputStream contentStream = new CountingInputStream(stream);
+		Object event = events.parseStarted();
+		long traceStart = Trace.start();
+		long parseStart = System.nanoTime();
+		Document document = Jsoup.parse(contentStream, charsetName, url);
+		Trace.end("parse", url, traceStart);
+		if (poll != null) {
+			poll.parsed(System.nanoTime() - parseStart);
+		}
+		if (event != null) {
+			events.listingParsed(event, url, document.getElementsByTag("a").size(), contentStream.getByteCount());
+		}
+		return document;
+	}
+
+	/**
+	 * Fetched listing, either parsed or, with listing memo enabled, as body with its hash. Parsing of the body is left to
+	 * {@link #downloadHtml}, which skips it if the memo has a result for the hash.
+	 */
+	protected static class Listing {
+		final Document document;
+		final byte[] body;
+		final String charsetName;
+		final byte[] hash;
+
+		protected Listing(Document document) {
+			this.document = document;
+			this.body = null;
+			this.charsetName = null;
+			this.hash = null;
+		}
+
+		protected Listing(byte[] body, String charsetName, byte[] hash) {
+			this.document = null;
+			this.body = body;
+			this.charsetName = charsetName;
+			this.hash = hash;
+		}
+	}
+
+	/**
+	 * Sends a second listing request if the first one did not answer within the hedge delay of its host.
+	 * Whichever answers first wins, the other one gets aborted.
+	 */
+	protected Listing fetchListingHedged(final String url, final HttpClient client, UserPw userPw) throws ClientProtocolException, IOException {
+		final String host = URI.create(url).getHost();
+		long hedgeDelay = hedging.hedgeDelay(host);
+		if (hedgeDelay < 0) {
+			long startTime = System.currentTimeMillis();
+			try {
+				return fetchListing(newGet(url, userPw), url, client);
+			} finally {
+				hedging.record(host, System.currentTimeMillis() - startTime);
+			}
+		}
+
+		CompletionService<Listing> completionService = new ExecutorCompletionService<>(hedging.executor());
+		List<HttpGet> requests = new ArrayList<>(2);
+		List<Future<Listing>> futures = new ArrayList<>(2);
+		boolean hedged = false;
 		try {
-			int statusCode = response.getStatusLine().getStatusCode();
-			if (statusCode > 399) {
-				throw new IOException("status code: " + statusCode);
+			HttpGet primary = newGet(url, userPw);
+			requests.add(primary);
+			futures.add(completionService.submit(fetchTask(primary, url, client, host)));
+
+			Future<Listing> done = completionService.poll(hedgeDelay, TimeUnit.MILLISECONDS);
+			if (done == null && hedging.tryAcquireHedge()) {
+				hedged = true;
+				log.debug("no answer after {} ms, sending hedge request: {}", hedgeDelay, url);
+				HttpGet hedge = newGet(url, userPw);
+				requests.add(hedge);
+				futures.add(completionService.submit(fetchTask(hedge, url, client, host)));
 			}
-			String charsetName = charsetName(response);
-			InputStream contentStream = response.getEntity().getContent();
-			Document document = Jsoup.parse(contentStream, charsetName, url);
-		
-			return callback.callback(url, client, document);
 
+			ExecutionException firstFailure = null;
+			for (int i = 0; i < futures.size(); i++) {
+				if (done == null) {
+					done = completionService.take();
+				}
+				try {
+					return done.get();
+				} catch (ExecutionException e) {
+					if (firstFailure == null) {
+						firstFailure = e;
+					}
+				}
+				done = null;
+			}
+			throw asIOException(firstFailure.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for listing: " + url);
 		} finally {
-			EntityUtils.consumeQuietly(response.getEntity());
+			for (HttpGet request : requests) {
+				request.abort();
+			}
+			for (Future<Listing> future : futures) {
+				future.cancel(true);
+			}
+			if (hedged) {
+				hedging.releaseHedge();
+			}
+		}
+	}
+
+	private Callable<Listing> fetchTask(final HttpGet httpget, final String url, final HttpClient client, final String host) {
+		final Trace trace = Trace.current();
+		return new Callable<Listing>() {
+			@Override
+			public Listing call() throws Exception {
+				Trace.bind(trace);
+				long startTime = System.currentTimeMillis();
+				try {
+					return fetchListing(httpget, url, client);
+				} finally {
+					// aborted and failed requests count too, at least as lower bound, or slow answers would never be sampled
+					hedging.record(host, System.currentTimeMillis() - startTime);
+					Trace.bind(null);
+				}
+			}
+		};
+	}
+
+	private IOException asIOException(Throwable t) {
+		if (t instanceof IOException) {
+			return (IOException) t;
+		} else if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
 		}
+		return new IOException(t);
 	}
 
 	protected final static String CHARSET_KEY = "; charset=";
@@ -177,43 +658,75 @@ public class ArtifactoryClient {
 		return false;
 	}
 
-	public Revision latestRevision(final String url, final String versionRegex, final HttpClient client, final UserPw userPw)
+	public static final String BAD_DATA_REVISION = "bad data, check logs";
+
+	public Revision latestRevision(String url, final String versionRegex, final HttpClient client, final UserPw userPw)
 			throws ClientProtocolException, IOException {
-		return downloadHtml(url, client, userPw, new Callback<Revision>(){
-			@Override
-			public Revision callback(String url, HttpClient client, Document document) throws IOException
-			{
-				List<Revision> revisions = revisions(url, versionRegex, client, userPw, document, null);
-				Revision rev = !revisions.isEmpty() ? revisions.get(0) : null;
-				if (rev == null) {
-					logger.info("Could not find revision!\nurl: " + url + "\nversion regex: " + versionRegex + "\nhtml: " + document.outerHtml());
-
-					// build empty/null rev to avoid NPE
-					rev = new Revision();
-					rev.revision = "bad data, check logs";
-					rev.timestamp = new Date(0);
-					rev.files = Collections.emptyList();
-				}
-				return rev;
-			}
-		});
+		url = withTrailingSlash(url);
+		List<Revision> revisions = revisions(url, versions(url, versionRegex, null, client, userPw), client, userPw, null, null);
+		Revision rev = !revisions.isEmpty() ? revisions.get(0) : null;
+		if (rev == null) {
+			log.info("Could not find revision!\nurl: {}\nversion regex: {}", url, versionRegex);
+
+			// build empty/null rev to avoid NPE
+			rev = new Revision();
+			rev.revision = BAD_DATA_REVISION;
+			rev.timestamp = new Date(0);
+			rev.files = Collections.emptyList();
+		}
+		return rev;
 	}
 
 	public List<Revision> latestRevisionsSince(final String url, final String versionRegex, final HttpClient client, final UserPw userPw, final Date since)
 			throws ClientProtocolException, IOException {
-		return downloadHtml(url, client, userPw, new Callback<List<Revision>>(){
+		return latestRevisionsSince(url, versionRegex, client, userPw, since, null);
+	}
+
+	/**
+	 * Passes each revision to listener as soon as its files are known instead of collecting them.
+	 */
+	public List<Revision> latestRevisionsSince(String url, final String versionRegex, final HttpClient client, final UserPw userPw, final Date since,
+			final RevisionListener listener) throws ClientProtocolException, IOException {
+		url = withTrailingSlash(url);
+		return revisions(url, versions(url, versionRegex, since, client, userPw), client, userPw, since, listener);
+	}
+
+	/**
+	 * @return version directories matching regex, newer than since if given, without files
+	 */
+	protected List<Revision> versions(String url, final String versionRegex, final Date since, HttpClient client, UserPw userPw)
+			throws ClientProtocolException, IOException {
+		String key = "versions " + (since != null ? since.getTime() : "") + " " + versionRegex;
+		return downloadHtml(url, client, userPw, new MemoizedRevisionsCallback(key) {
 			@Override
-			public List<Revision> callback(String url, HttpClient client, Document document) throws IOException
+			public List<Revision> callback(String url, HttpClient client, Document document)
 			{
-				return revisions(url, versionRegex, client, userPw, document, since);
+				List<Revision> versions = versions(url, versionRegex, document, since);
+				if (versions.isEmpty() && since == null) {
+					log.debug("html: {}", DiagnosticLog.debugBody(document));
+				}
+				return versions;
 			}
 		});
 	}
 
 	protected List<Revision> revisions(String url, String versionRegex, HttpClient client, UserPw userPw, Document document, Date since)
 			throws ClientProtocolException, IOException {
-		List<Revision> revisions = new ArrayList<>();
+		return revisions(url, versionRegex, client, userPw, document, since, null);
+	}
+
+	/**
+	 * @param listener if not null gets revisions found since given date, those are not part of returned list
+	 */
+	protected List<Revision> revisions(String url, String versionRegex, HttpClient client, UserPw userPw, Document document, Date since,
+			RevisionListener listener) throws ClientProtocolException, IOException {
+		return revisions(url, versions(url, versionRegex, document, since), client, userPw, since, listener);
+	}
+
+	protected List<Revision> versions(String url, String versionRegex, Document document, Date since) {
+		List<Revision> versions = new ArrayList<>();
 		Elements links = document.select("a");
+		countEntries(links.size());
 		Pattern pattern = versionRegex != null
 			? Pattern.compile(versionRegex)
 			: null;
@@ -227,14 +740,31 @@ public class ArtifactoryClient {
 				if (matches) {
 					Revision rev = elementToRev(link, since, url);
 					if (rev != null) {
-						revisions.add(rev);
-						if (since != null) {
-							filesForRev(url, client, userPw, rev);
-						}
+						versions.add(rev);
 					}
 				}
 			}
 		}
+		return versions;
+	}
+
+	/**
+	 * Lists files of versions: of each one if since is given, otherwise of the last one only.
+	 * @param listener if not null gets revisions found since given date, those are not part of returned list
+	 */
+	protected List<Revision> revisions(String url, List<Revision> versions, HttpClient client, UserPw userPw, Date since,
+			RevisionListener listener) throws ClientProtocolException, IOException {
+		List<Revision> revisions = new ArrayList<>();
+		for (Revision rev : versions) {
+			if (since != null) {
+				filesForRev(url, client, userPw, rev);
+				if (listener != null) {
+					listener.revision(rev);
+					continue;
+				}
+			}
+			revisions.add(rev);
+		}
 		if (since == null && !revisions.isEmpty()) {
 			// assume revisions are ordered by date
 			Revision lastRev = revisions.get(revisions.size() - 1);
@@ -247,12 +777,15 @@ public class ArtifactoryClient {
 	protected void filesForRev(String url, HttpClient client, UserPw userPw, Revision rev) throws ClientProtocolException, IOException
 	{
 		String revUrl = url + rev.revision;
+		long traceStart = Trace.start();
 		List<Revision> fileRevs = files(revUrl, client, userPw);
 		List<String> files = new ArrayList<>(fileRevs.size());
 		for (Revision fileRev : fileRevs) {
 			files.add(fileRev.revision);
 		}
 		rev.files = files;
+		rev.manifest = fileRevs;
+		Trace.end("filesForRev", revUrl, traceStart);
 	}
 
 	protected List<Revision> files(String url, HttpClient client, UserPw userPw) throws ClientProtocolException, IOException {
@@ -261,12 +794,13 @@ public class ArtifactoryClient {
 
 	protected List<Revision> children(final String url, final boolean directories, final HttpClient client, final UserPw userPw)
 			throws ClientProtocolException, IOException {
-		return downloadHtml(url, client, userPw, new Callback<List<Revision>>() {
+		return downloadHtml(url, client, userPw, new MemoizedRevisionsCallback(directories ? "directories" : "files") {
 			@Override
 			public List<Revision> callback(String url, HttpClient client, Document document)
 			{
 				List<Revision> revisions = new ArrayList<>();
 				Elements links = document.select("a");
+				countEntries(links.size());
 				for (Element link : links) {
 					String href = link.attr("href");
 					boolean isCorrectType = directories
@@ -336,6 +870,7 @@ public class ArtifactoryClient {
 				rev.revision = name;
 				rev.comment = name;
 				rev.timestamp = date;
+				rev.size = sizeInText(text);
 				return rev;
 			}
 		}
@@ -352,22 +887,112 @@ public class ArtifactoryClient {
 				text = text.substring(0, HTML_DATE_FORMAT_STR.length());
 				return HTML_DATE_FORMATTER.parseDateTime(text).toDate();
 			} catch (Exception e) {
-				logger.warn("could not parse date: '" + text + "', url: " + url);
-				logger.debug(e.getMessage(), e);
+				log.warnRateLimited("findDateInText", "could not parse date: '{}', url: {}", text, url);
+				log.debug(e.getMessage(), e);
 			}
 		}
 		return new Date(0);
 	}
 
+	protected static final String BYTES_SUFFIX = " bytes";
+
+	/**
+	 * @return size if listing states it in bytes, -1 for directories and rounded sizes like '4.88 MB'
+	 */
+	protected long sizeInText(String text) {
+		if (text != null) {
+			text = text.trim();
+			if (text.endsWith(BYTES_SUFFIX)) {
+				int end = text.length() - BYTES_SUFFIX.length();
+				int start = text.lastIndexOf(' ', end - 1) + 1;
+				try {
+					return Long.parseLong(text.substring(start, end));
+				} catch (NumberFormatException e) {
+					// not a size
+				}
+			}
+		}
+		return -1;
+	}
+
+	public static enum RequestType {
+		LISTING, DOWNLOAD
+	}
+
 	public static class Revision {
 		String revision;
 		Date timestamp;
 		String comment;
 		List<String> files;
 		List<String> matchingGroups;
+		/** size in bytes of a file, -1 if not known */
+		long size = -1;
+		/** files with sizes, set together with files */
+		List<Revision> manifest;
+
+		Revision copy() {
+			Revision copy = new Revision();
+			copy.revision = revision;
+			copy.timestamp = timestamp;
+			copy.comment = comment;
+			copy.files = files;
+			copy.matchingGroups = matchingGroups;
+			copy.size = size;
+			copy.manifest = manifest;
+			return copy;
+		}
 	}
 
 	protected static interface Callback<T> {
 		T callback(String url, HttpClient client, Document document) throws IOException;
 	}
+
+	/**
+	 * Callback whose result only depends on the listing and its key, so the listing memo can reuse it
+	 * while the listing body does not change. It must not send requests itself.
+	 */
+	protected static abstract class MemoizedCallback<T> implements Callback<T> {
+		final String key;
+
+		protected MemoizedCallback(String key) {
+			this.key = key;
+		}
+
+		/**
+		 * @return copy of result that can be changed without changing the remembered one
+		 */
+		protected abstract T copy(T result);
+	}
+
+	/**
+	 * Result remembered in listing memo, with number of entries of the listing it was built from.
+	 */
+	private static class MemoizedResult {
+		final Object result;
+		final int entries;
+
+		MemoizedResult(Object result, int entries) {
+			this.result = result;
+			this.entries = entries;
+		}
+	}
+
+	protected static abstract class MemoizedRevisionsCallback extends MemoizedCallback<List<Revision>> {
+		protected MemoizedRevisionsCallback(String key) {
+			super(key);
+		}
+
+		@Override
+		protected List<Revision> copy(List<Revision> result) {
+			List<Revision> copy = new ArrayList<>(result.size());
+			for (Revision rev : result) {
+				copy.add(rev.copy());
+			}
+			return copy;
+		}
+	}
+
+	public static interface RevisionListener {
+		void revision(Revision rev) throws IOException;
+	}
 }
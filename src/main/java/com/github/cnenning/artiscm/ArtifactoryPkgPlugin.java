@@ -1,16 +1,13 @@
 package com.github.cnenning.artiscm;
 
 import java.io.IOException;
-import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.cnenning.artiscm.ArtifactoryClient.Revision;
 import com.thoughtworks.go.plugin.api.GoPluginIdentifier;
 import com.thoughtworks.go.plugin.api.annotation.Extension;
@@ -33,6 +30,54 @@ public class ArtifactoryPkgPlugin extends AbstractArtifactoryPlugin {
 	public static final String REQUEST_PKG_LATEST_REV_SINCE = "latest-revision-since";
 
 	public ArtifactoryPkgPlugin() {
+		registerStaticHandler(REQUEST_PKG_REPO_CONFIG, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handleRepoConfig());
+			}
+		});
+		registerStaticHandler(REQUEST_PKG_PKG_CONFIG, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handlePkgConfig());
+			}
+		});
+		registerHandler(REQUEST_PKG_REPO_CONFIG_VALI, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handleRepoValidation(request));
+			}
+		});
+		registerHandler(REQUEST_PKG_PKG_CONFIG_VALI, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handlePkgValidation(request));
+			}
+		});
+		registerHandler(REQUEST_PKG_REPO_CHECK_CON, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handleCheckRepoConnection(request));
+			}
+		});
+		registerHandler(REQUEST_PKG_PKG_CHECK_CON, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handleCheckPkgConnection(request));
+			}
+		});
+		registerHandler(REQUEST_PKG_LATEST_REV, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handleLatestRevision(request));
+			}
+		});
+		registerHandler(REQUEST_PKG_LATEST_REV_SINCE, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handleLatestRevisionSince(request));
+			}
+		});
 		logger.debug("extension instance created");
 	}
 
@@ -41,28 +86,6 @@ public class ArtifactoryPkgPlugin extends AbstractArtifactoryPlugin {
 		return GO_PLUGIN_ID;
 	}
 
-	@Override
-	protected GoPluginApiResponse handleApiRequest(String name, String body) throws IOException, ParseException {
-		if (REQUEST_PKG_REPO_CONFIG.equals(name)) {
-			return toJson(handleRepoConfig());
-		} else if (REQUEST_PKG_PKG_CONFIG.equals(name)) {
-			return toJson(handlePkgConfig());
-		} else if (REQUEST_PKG_REPO_CONFIG_VALI.equals(name)) {
-			return toJson(handleRepoValidation(body));
-		} else if (REQUEST_PKG_PKG_CONFIG_VALI.equals(name)) {
-			return toJson(handlePkgValidation(body));
-		} else if (REQUEST_PKG_REPO_CHECK_CON.equals(name)) {
-			return toJson(handleCheckRepoConnection(body));
-		} else if (REQUEST_PKG_PKG_CHECK_CON.equals(name)) {
-			return toJson(handleCheckPkgConnection(body));
-		} else if (REQUEST_PKG_LATEST_REV.equals(name)) {
-			return toJson(handleLatestRevision(body));
-		} else if (REQUEST_PKG_LATEST_REV_SINCE.equals(name)) {
-			return toJson(handleLatestRevisionSince(body));
-		}
-		return null;
-	}
-
 	private Map<String, Object> handleRepoConfig() {
 		Map<String, Object> wrapper = new HashMap<>();
 
@@ -135,9 +158,8 @@ public class ArtifactoryPkgPlugin extends AbstractArtifactoryPlugin {
 		wrapper.put("password", map);
 	}
 
-	private List<Object> handleRepoValidation(String inputJson) throws JsonParseException, JsonMappingException, IOException {
-		Map config = new ObjectMapper().readValue(inputJson, Map.class);
-		List<Object> valiErrors = new ArrayList<>();
+	private List<ApiJson.ValidationError> handleRepoValidation(ApiJson.Request config) {
+		List<ApiJson.ValidationError> valiErrors = new ArrayList<>();
 
 		String baseUrl = configValueRepo(config, "base_url");
 		logger.debug("validating url: " + baseUrl);
@@ -149,9 +171,8 @@ public class ArtifactoryPkgPlugin extends AbstractArtifactoryPlugin {
 		return valiErrors;
 	}
 
-	private List<Object> handlePkgValidation(String inputJson) throws JsonParseException, JsonMappingException, IOException {
-		Map config = new ObjectMapper().readValue(inputJson, Map.class);
-		List<Object> valiErrors = new ArrayList<>();
+	private List<ApiJson.ValidationError> handlePkgValidation(ApiJson.Request config) {
+		List<ApiJson.ValidationError> valiErrors = new ArrayList<>();
 
 		String path = configValuePkg(config, "path");
 		String pattern = configValuePkg(config, "pattern");
@@ -167,14 +188,12 @@ public class ArtifactoryPkgPlugin extends AbstractArtifactoryPlugin {
 		return valiErrors;
 	}
 
-	private Map<String, Object> handleCheckRepoConnection(String inputJson) throws JsonParseException, JsonMappingException, IOException {
-		Map config = new ObjectMapper().readValue(inputJson, Map.class);
+	private ApiJson.Status handleCheckRepoConnection(ApiJson.Request config) {
 		String url = configValueRepo(config, "base_url");
 		return checkConnection(url, null, userPw(config));
 	}
 
-	private Map<String, Object> handleCheckPkgConnection(String inputJson) throws JsonParseException, JsonMappingException, IOException {
-		Map config = new ObjectMapper().readValue(inputJson, Map.class);
+	private ApiJson.Status handleCheckPkgConnection(ApiJson.Request config) {
 		String baseUrl = configValueRepo(config, "base_url");
 		String path = configValuePkg(config, "path");
 		String pattern = configValuePkg(config, "pattern");
@@ -182,20 +201,38 @@ public class ArtifactoryPkgPlugin extends AbstractArtifactoryPlugin {
 		return checkConnection(baseUrl + path, pattern, userPw(config), isDirectory);
 	}
 
-	private Map<String, Object> handleLatestRevision(String inputJson) throws JsonParseException, JsonMappingException, IOException {
-		Map config = new ObjectMapper().readValue(inputJson, Map.class);
+	private ApiJson.RevisionJson handleLatestRevision(ApiJson.Request config) throws IOException {
 		String baseUrl = configValueRepo(config, "base_url");
 		String path = configValuePkg(config, "path");
 		String pattern = configValuePkg(config, "pattern");
 		String url = baseUrl + path;
 		boolean isDirectory = isDirectory(config);
 		logger.debug("obtaining latest revision of: " + url);
-		ArtifactoryClient artifactoryClient = new ArtifactoryClient();
-		Revision revision = artifactoryClient.latestChild(url, pattern, isDirectory, httpClient, userPw(config));
-		Map<String, Object> revisionJson = buildRevisionJson(revision);
+		String materialKey = materialKey(url, pattern, isDirectory, userPw(config));
+		ArtifactoryClient artifactoryClient = artifactoryClient().forMaterial(materialKey);
+		Revision revision = backgroundRevision(materialKey, url, fetcher(materialKey, url, pattern, isDirectory, userPw(config)));
+		if (revision != null) {
+			logger.debug("serving revision refreshed in background: " + revision.revision);
+			servedFromMemory(materialKey);
+		} else {
+			PollStats poll = new PollStats();
+			artifactoryClient.withPoll(poll);
+			try {
+				revision = artifactoryClient.latestChild(url, pattern, isDirectory, httpClient(), userPw(config));
+				if (revision != null) {
+					rememberRevision(materialKey, revision);
+					updateBackgroundRevision(materialKey, revision);
+				}
+			} catch (CircuitOpenException e) {
+				revision = lastGoodRevision(materialKey, e);
+			} finally {
+				finishPoll(materialKey, poll);
+			}
+		}
+		ApiJson.RevisionJson revisionJson = buildRevisionJson(revision);
 
 		Map<String, String> dataMap = new HashMap<>();
-		revisionJson.put("data", dataMap);
+		revisionJson.data = dataMap;
 
 		String filename = revision.revision;
 		String filenameEncoded = artifactoryClient.escapeName(filename);
@@ -214,13 +251,32 @@ public class ArtifactoryPkgPlugin extends AbstractArtifactoryPlugin {
 		return revisionJson;
 	}
 
-	private Map<String, Object> handleLatestRevisionSince(String inputJson) throws JsonParseException, JsonMappingException, IOException {
-		Map<String, Object> latestRevision = handleLatestRevision(inputJson);
-		Map config = new ObjectMapper().readValue(inputJson, Map.class);
+	private LeasingFetcher fetcher(final String materialKey, final String url, final String pattern, final boolean isDirectory,
+			final UserPw userPw) {
+		return new LeasingFetcher() {
+			@Override
+			protected Revision fetchLeased() throws Exception {
+				PollStats poll = new PollStats(true);
+				Revision revision;
+				try {
+					revision = artifactoryClient().forMaterial(materialKey).withPoll(poll).latestChild(url, pattern, isDirectory, httpClient(), userPw);
+				} finally {
+					finishPoll(materialKey, poll);
+				}
+				if (revision != null) {
+					rememberRevision(materialKey, revision);
+				}
+				return revision;
+			}
+		};
+	}
+
+	private Object handleLatestRevisionSince(ApiJson.Request config) throws IOException {
+		ApiJson.RevisionJson latestRevision = handleLatestRevision(config);
 		String prevTimestamp = prevRevisonTimestampFromApiInput(config);
-		String currentTimestamp = (String)latestRevision.get("timestamp");
+		String currentTimestamp = latestRevision.timestamp;
 		return prevTimestamp.equals(currentTimestamp)
-				? new HashMap<String, Object>()
+				? Collections.emptyMap()
 				: latestRevision;
 	}
 
@@ -236,27 +292,27 @@ public class ArtifactoryPkgPlugin extends AbstractArtifactoryPlugin {
 		return valiErrors;
 	}
 
-	protected String configValueRepo(Map config, String key) {
-		return configValue(config, "repository-configuration", key);
+	protected String configValueRepo(ApiJson.Request config, String key) {
+		return ApiJson.Request.value(config.repositoryConfiguration, key);
 	}
 
-	protected String configValuePkg(Map config, String key) {
-		return configValue(config, "package-configuration", key);
+	protected String configValuePkg(ApiJson.Request config, String key) {
+		return ApiJson.Request.value(config.packageConfiguration, key);
 	}
 
-	protected boolean isDirectory(Map config) {
+	protected boolean isDirectory(ApiJson.Request config) {
 		String isDirStr = configValuePkg(config, "isDir");
 		return isTrue(isDirStr);
 	}
 
-	protected String prevRevisonTimestampFromApiInput(Map input) {
-		Map keysMap = (Map)input.get("previous-revision");
-		return keysMap != null
-				? (String) keysMap.get("timestamp")
+	protected String prevRevisonTimestampFromApiInput(ApiJson.Request input) {
+		ApiJson.RevisionRef previousRevision = input.previousRevision;
+		return previousRevision != null && previousRevision.timestamp != null
+				? previousRevision.timestamp
 				: "";
 	}
 
-	protected UserPw userPw(Map config) {
+	protected UserPw userPw(ApiJson.Request config) {
 		String username = configValuePkg(config, "username");
 		String password = configValuePkg(config, "password");
 		if (username == null) {
@@ -6,7 +6,6 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
-import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -16,10 +15,8 @@ import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.cnenning.artiscm.ArtifactoryClient.Revision;
+import com.github.cnenning.artiscm.ArtifactoryClient.RevisionListener;
 import com.thoughtworks.go.plugin.api.GoPlugin;
 import com.thoughtworks.go.plugin.api.GoPluginIdentifier;
 import com.thoughtworks.go.plugin.api.annotation.Extension;
@@ -41,6 +38,48 @@ public class ArtifactoryScmPlugin extends AbstractArtifactoryPlugin implements G
 	public static final String REQUEST_SCM_CHECKOUT = "checkout";
 
 	public ArtifactoryScmPlugin() {
+		registerStaticHandler(REQUEST_SCM_CONFIGURATION, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handleScmConfig());
+			}
+		});
+		registerStaticHandler(REQUEST_SCM_VIEW, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handleScmView());
+			}
+		});
+		registerHandler(REQUEST_SCM_VALIDATE_CONFIGURATION, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handleScmValidation(request));
+			}
+		});
+		registerHandler(REQUEST_SCM_CHECK_CONNECTION, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handleCheckScmConnection(request));
+			}
+		});
+		registerHandler(REQUEST_SCM_LATEST_REVISION, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handleLatestRevision(request));
+			}
+		});
+		registerHandler(REQUEST_SCM_LATEST_REVISIONS_SINCE, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return handleLatestRevisionsSince(request);
+			}
+		});
+		registerHandler(REQUEST_SCM_CHECKOUT, new RequestHandler() {
+			@Override
+			public GoPluginApiResponse handle(ApiJson.Request request) throws Exception {
+				return toJson(handleCheckout(request));
+			}
+		});
 		logger.debug("extension instance created");
 	}
 
@@ -49,27 +88,6 @@ public class ArtifactoryScmPlugin extends AbstractArtifactoryPlugin implements G
 		return GO_PLUGIN_ID;
 	}
 
-	@Override
-	protected GoPluginApiResponse handleApiRequest(String name, String body) throws IOException, ParseException
-	{
-		if (REQUEST_SCM_CONFIGURATION.equals(name)) {
-			return toJson(handleScmConfig());
-		} else if (REQUEST_SCM_VIEW.equals(name)) {
-			return toJson(handleScmView());
-		} else if (REQUEST_SCM_VALIDATE_CONFIGURATION.equals(name)) {
-			return toJson(handleScmValidation(body));
-		} else if (REQUEST_SCM_CHECK_CONNECTION.equals(name)) {
-			return toJson(handleCheckScmConnection(body));
-		} else if (REQUEST_SCM_LATEST_REVISION.equals(name)) {
-			return toJson(handleLatestRevision(body));
-		} else if (REQUEST_SCM_LATEST_REVISIONS_SINCE.equals(name)) {
-			return toJson(handleLatestRevisionsSince(body));
-		} else if (REQUEST_SCM_CHECKOUT.equals(name)) {
-			return toJson(handleCheckout(body));
-		}
-		return null;
-	}
-
 	private Map<String, Object> handleScmConfig() {
 		// url
 		Map<String, Object> map = new HashMap<>();
@@ -138,9 +156,8 @@ public class ArtifactoryScmPlugin extends AbstractArtifactoryPlugin implements G
 		return map;
 	}
 
-	private List<Object> handleScmValidation(String inputJson) throws JsonParseException, JsonMappingException, IOException {
-		Map config = new ObjectMapper().readValue(inputJson, Map.class);
-		List<Object> valiErrors = new ArrayList<>();
+	private List<ApiJson.ValidationError> handleScmValidation(ApiJson.Request config) {
+		List<ApiJson.ValidationError> valiErrors = new ArrayList<>();
 
 		String url = configValue(config, "url");
 		String pattern = configValue(config, "pattern");
@@ -156,51 +173,109 @@ public class ArtifactoryScmPlugin extends AbstractArtifactoryPlugin implements G
 		return valiErrors;
 	}
 
-	private Map<String, Object> handleCheckScmConnection(String inputJson) throws JsonParseException, JsonMappingException, IOException {
-		Map config = new ObjectMapper().readValue(inputJson, Map.class);
+	private ApiJson.Status handleCheckScmConnection(ApiJson.Request config) {
 		String url = configValue(config, "url");
 		String versionRegex = configValue(config, "version_regex");
 		return checkConnection(url, versionRegex, userPw(config));
 	}
 
-	private Map<String, Object> handleLatestRevision(String inputJson) throws JsonParseException, JsonMappingException, IOException {
-		Map config = new ObjectMapper().readValue(inputJson, Map.class);
+	private ApiJson.LatestRevision handleLatestRevision(ApiJson.Request config) throws IOException {
 		String url = configValue(config, "url");
 		String versionRegex = configValue(config, "version_regex");
 		logger.debug("obtaining latest revision of: " + url + ", with regex: " + versionRegex);
-		Revision revision = new ArtifactoryClient().latestRevision(url, versionRegex, httpClient, userPw(config));
-		Map<String, Object> revisionJson = buildRevisionJson(revision);
+		String materialKey = materialKey(url, versionRegex, false, userPw(config));
+		Revision revision = backgroundRevision(materialKey, url, fetcher(materialKey, url, versionRegex, userPw(config)));
+		if (revision != null) {
+			logger.debug("serving revision refreshed in background: " + revision.revision);
+			servedFromMemory(materialKey);
+			return new ApiJson.LatestRevision(buildRevisionJson(revision));
+		}
+		PollStats poll = new PollStats();
+		try {
+			revision = artifactoryClient().forMaterial(materialKey).withPoll(poll).latestRevision(url, versionRegex, httpClient(), userPw(config));
+			if (!ArtifactoryClient.BAD_DATA_REVISION.equals(revision.revision)) {
+				rememberRevision(materialKey, revision);
+				updateBackgroundRevision(materialKey, revision);
+			}
+		} catch (CircuitOpenException e) {
+			revision = lastGoodRevision(materialKey, e);
+		} finally {
+			finishPoll(materialKey, poll);
+		}
+		return new ApiJson.LatestRevision(buildRevisionJson(revision));
+	}
 
-		Map<String, Object> map = new HashMap<>();
-		map.put("revision", revisionJson);
-		return map;
+	/**
+	 * @return fetcher of latest revision for background refresh
+	 */
+	private LeasingFetcher fetcher(final String materialKey, final String url, final String versionRegex, final UserPw userPw) {
+		return new LeasingFetcher() {
+			@Override
+			protected Revision fetchLeased() throws Exception {
+				PollStats poll = new PollStats(true);
+				Revision revision;
+				try {
+					revision = artifactoryClient().forMaterial(materialKey).withPoll(poll).latestRevision(url, versionRegex, httpClient(), userPw);
+				} finally {
+					finishPoll(materialKey, poll);
+				}
+				if (ArtifactoryClient.BAD_DATA_REVISION.equals(revision.revision)) {
+					return null;
+				}
+				rememberRevision(materialKey, revision);
+				return revision;
+			}
+		};
 	}
 
-	private Map<String, Object> handleLatestRevisionsSince(String inputJson) throws JsonParseException, JsonMappingException, IOException {
-		Map apiInput = new ObjectMapper().readValue(inputJson, Map.class);
+	private GoPluginApiResponse handleLatestRevisionsSince(ApiJson.Request apiInput) throws IOException {
 		String url = configValue(apiInput, "url");
 		String versionRegex = configValue(apiInput, "version_regex");
 		Date since = dateFromApiInput(apiInput);
 		logger.debug("obtaining latest revisions since '" + since + "' of: " + url + ", with regex: " + versionRegex);
-		List<Revision> revisions = new ArtifactoryClient().latestRevisionsSince(url, versionRegex, httpClient, userPw(apiInput), since);
 
-		List<Map<String, Object>> revJsonList = new ArrayList<>(revisions.size());
-		for (Revision revision : revisions) {
-			Map<String, Object> revisionJson = buildRevisionJson(revision);
-			revJsonList.add(revisionJson);
+		// first polls may return many revisions with many files, write them as they come
+		final ApiJson.RevisionsWriter writer = new ApiJson.RevisionsWriter();
+		String materialKey = materialKey(url, versionRegex, false, userPw(apiInput));
+		Revision cached = backgroundRevision(materialKey, url, fetcher(materialKey, url, versionRegex, userPw(apiInput)));
+		if (cached != null && since != null && !cached.timestamp.after(since)) {
+			// nothing new, newer revisions would need their files listed
+			logger.debug("no revision since '" + since + "' according to background refresh");
+			servedFromMemory(materialKey);
+		} else {
+			PollStats poll = new PollStats();
+			final Revision[] latest = new Revision[1];
+			try {
+				artifactoryClient().forMaterial(materialKey).withPoll(poll).latestRevisionsSince(url, versionRegex, httpClient(), userPw(apiInput), since,
+						new RevisionListener() {
+							@Override
+							public void revision(Revision rev) throws IOException {
+								writer.write(rev.revision, formatTimestamp(rev.timestamp), rev.comment, rev.files, revisionData(rev));
+								if (latest[0] == null || rev.timestamp.after(latest[0].timestamp)) {
+									latest[0] = rev;
+								}
+							}
+						});
+			} finally {
+				finishPoll(materialKey, poll);
+			}
+			if (latest[0] != null) {
+				updateBackgroundRevision(materialKey, latest[0]);
+			}
 		}
-		Map<String, Object> map = new HashMap<>();
-		map.put("revisions", revJsonList);
-		return map;
+		long encodeStart = Trace.start();
+		String json = writer.finish();
+		Trace.end("encode", null, encodeStart);
+		return jsonResponse(json);
 	}
 
-	private Map<String, Object> handleCheckout(String inputJson) {
+	private ApiJson.Status handleCheckout(ApiJson.Request apiInput) {
 		String status;
 		String msg;
 		try {
-			Map apiInput = new ObjectMapper().readValue(inputJson, Map.class);
 			String url = configValue(apiInput, "url");
 			String pattern = configValue(apiInput, "pattern");
+			String versionRegex = configValue(apiInput, "version_regex");
 			String targetDirPath = targetDirFromApiInput(apiInput);
 			String rev = revisonFromApiInput(apiInput);
 			boolean versionOnly = versionOnly(apiInput);
@@ -216,8 +291,14 @@ public class ArtifactoryScmPlugin extends AbstractArtifactoryPlugin implements G
 			if (!versionOnly) {
 				logger.debug("checking out, rev: '" + rev + "' from: " + url + ", pattern: " + pattern);
 
+				String materialKey = materialKey(url, versionRegex, false, userPw(apiInput));
 				url = url + rev;
-				new ArtifactoryClient().downloadFiles(url, httpClient, userPw(apiInput), targetDir, pattern);
+				// files listed at poll time, older revisions have to be listed again
+				List<Revision> manifest = FileManifest.decode(revisionDataFromApiInput(apiInput, FileManifest.DATA_KEY));
+				if (manifest != null) {
+					logger.debug("downloading " + manifest.size() + " files of manifest");
+				}
+				artifactoryClient().forMaterial(materialKey).downloadFiles(url, httpClient(), userPw(apiInput), targetDir, pattern, manifest);
 			} else {
 				logger.debug("creating version file, rev: '" + rev + "' in: " + targetDir);
 
@@ -233,22 +314,19 @@ public class ArtifactoryScmPlugin extends AbstractArtifactoryPlugin implements G
 			msg = e.toString();
 			logger.error("could not checkout", e);
 		}
-		Map<String, Object> map = new HashMap<>();
-		map.put("status", status);
-		map.put("messages", Arrays.asList(msg));
-		return map;
+		return new ApiJson.Status(status, msg);
 	}
 
-	protected String configValue(Map config, String key) {
-		return configValue(config, "scm-configuration", key);
+	protected String configValue(ApiJson.Request config, String key) {
+		return ApiJson.Request.value(config.scmConfiguration, key);
 	}
 
-	protected boolean versionOnly(Map config) {
+	protected boolean versionOnly(ApiJson.Request config) {
 		String str = configValue(config, "version_only");
 		return isTrue(str);
 	}
 
-	protected UserPw userPw(Map config) {
+	protected UserPw userPw(ApiJson.Request config) {
 		return new UserPw(configValue(config, "username"), configValue(config, "password"));
 	}
 }
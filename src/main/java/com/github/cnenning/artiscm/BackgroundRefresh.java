@@ -0,0 +1,343 @@
+package com.github.cnenning.artiscm;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.cnenning.artiscm.ArtifactoryClient.Revision;
+import com.thoughtworks.go.plugin.api.logging.Logger;
+
+/**
+ * Refreshes latest revisions of materials in background, shortly before go is expected to poll them again,
+ * so polls can be answered from memory. Materials are learned from polls, the interval of a material is
+ * estimated from the time between its last polls. A material not polled for {@link #FORGET_INTERVALS}
+ * intervals is forgotten. Refreshes run on at most the configured number of threads, disabled by default.
+ */
+public class BackgroundRefresh {
+
+	public static final long DEFAULT_MAX_AGE_MILLIS = 60000;
+	public static final int FORGET_INTERVALS = 3;
+	/** materials polled only once are forgotten after this */
+	public static final long FORGET_UNKNOWN_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+	private static final long SWEEP_MILLIS = 60000;
+
+	/**
+	 * Fetches the latest revision of a material.
+	 */
+	public static interface Fetcher {
+		/**
+		 * @return null if there is no valid revision
+		 */
+		Revision fetch() throws Exception;
+	}
+
+	protected Logger logger = Logger.getLoggerFor(getClass());
+
+	private final ConcurrentMap<String, Material> materials = new ConcurrentHashMap<>();
+
+	private volatile int concurrency;
+	private volatile long maxAgeMillis = DEFAULT_MAX_AGE_MILLIS;
+	private ScheduledExecutorService scheduler;
+	private ExecutorService executor;
+
+	private final AtomicLong lastSweepMillis = new AtomicLong(System.currentTimeMillis());
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong refreshes = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+
+	/**
+	 * @param concurrency maximum of concurrent refreshes, 0 disables background refresh
+	 * @param maxAgeMillis revisions refreshed longer ago are not served
+	 * @param scheduler triggers refreshes, does not run them
+	 */
+	public synchronized void configure(int concurrency, long maxAgeMillis, ScheduledExecutorService scheduler) {
+		this.maxAgeMillis = maxAgeMillis;
+		if (concurrency == this.concurrency) {
+			return;
+		}
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+		for (Material material : materials.values()) {
+			material.cancel();
+		}
+		materials.clear();
+		this.concurrency = concurrency;
+		this.scheduler = scheduler;
+		if (concurrency > 0) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "artifactory-plugin-refresh-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+		}
+	}
+
+	/**
+	 * Stops refreshing and forgets all materials.
+	 */
+	public synchronized void shutdown() {
+		configure(0, maxAgeMillis, null);
+	}
+
+	public boolean isEnabled() {
+		return concurrency > 0;
+	}
+
+	/**
+	 * @return revision refreshed within max age, null if there is none
+	 */
+	public Revision cached(String materialKey) {
+		if (!isEnabled()) {
+			return null;
+		}
+		Material material = materials.get(materialKey);
+		Revision revision = material != null ? material.fresh(System.currentTimeMillis() - maxAgeMillis) : null;
+		if (revision != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return revision;
+	}
+
+	/**
+	 * Called on every poll of a material. Remembers how to fetch its latest revision and schedules the
+	 * next refresh ahead of the next expected poll.
+	 * @param url listing url of material
+	 */
+	public void polled(String materialKey, String url, Fetcher fetcher) {
+		if (!isEnabled()) {
+			return;
+		}
+		Material material = materials.get(materialKey);
+		if (material == null) {
+			material = new Material(materialKey, url);
+			Material existing = materials.putIfAbsent(materialKey, material);
+			if (existing != null) {
+				material = existing;
+			}
+		}
+		long now = System.currentTimeMillis();
+		long interval = material.polled(fetcher, now);
+		if (interval > 0) {
+			// refresh ahead by lead plus jitter, so revision is at most max age old at next poll
+			long lead = Math.min(interval / 4, maxAgeMillis / 2);
+			long jitter = lead > 0 ? ThreadLocalRandom.current().nextLong(lead) : 0;
+			schedule(material, interval - lead - jitter);
+		}
+		long lastSweep = lastSweepMillis.get();
+		if (now - lastSweep > SWEEP_MILLIS && lastSweepMillis.compareAndSet(lastSweep, now)) {
+			sweep(now);
+		}
+	}
+
+	private void sweep(long now) {
+		for (Material material : materials.values()) {
+			if (material.forgettable(now)) {
+				logger.debug("forgetting material not polled recently: " + material.key);
+				material.cancel();
+				materials.remove(material.key, material);
+			}
+		}
+	}
+
+	/**
+	 * @return listing url of each known material by material key
+	 */
+	public Map<String, String> materialUrls() {
+		Map<String, String> urls = new HashMap<>();
+		for (Material material : materials.values()) {
+			urls.put(material.key, material.url);
+		}
+		return urls;
+	}
+
+	/**
+	 * Drops revision of material, e.g. because a new version got deployed, and refreshes it right away.
+	 */
+	public void invalidate(String materialKey) {
+		Material material = materials.get(materialKey);
+		if (material != null) {
+			material.update(null, 0);
+			submit(materialKey);
+		}
+	}
+
+	/**
+	 * Stores revision a poll has fetched itself.
+	 */
+	public void update(String materialKey, Revision revision) {
+		Material material = materials.get(materialKey);
+		if (material != null) {
+			material.update(revision, System.currentTimeMillis());
+		}
+	}
+
+	private synchronized void schedule(final Material material, long delayMillis) {
+		if (scheduler == null || scheduler.isShutdown()) {
+			return;
+		}
+		material.schedule(scheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				submit(material.key);
+			}
+		}, delayMillis, TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * Queues refresh of material, does nothing if it is unknown. If it is refreshing already it is refreshed once more afterwards.
+	 */
+	synchronized void submit(final String materialKey) {
+		final Material material = materials.get(materialKey);
+		if (executor == null || material == null || !material.startRefresh()) {
+			return;
+		}
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				refresh(material);
+			}
+		});
+	}
+
+	private void refresh(Material material) {
+		try {
+			Fetcher fetcher = material.fetcher;
+			if (fetcher == null) {
+				return;
+			}
+			Revision revision = fetcher.fetch();
+			material.update(revision, System.currentTimeMillis());
+			refreshes.incrementAndGet();
+		} catch (Exception e) {
+			failures.incrementAndGet();
+			logger.debug("could not refresh " + material.key + ": " + e);
+		} finally {
+			if (material.finishRefresh()) {
+				// invalidated while refreshing, result may predate the change
+				submit(material.key);
+			}
+		}
+	}
+
+	public int materials() {
+		return materials.size();
+	}
+
+	public long hits() {
+		return hits.get();
+	}
+
+	public long misses() {
+		return misses.get();
+	}
+
+	public long refreshes() {
+		return refreshes.get();
+	}
+
+	public long failures() {
+		return failures.get();
+	}
+
+	private static class Material {
+		final String key;
+		final String url;
+		volatile Fetcher fetcher;
+		private long lastPollMillis;
+		private long intervalMillis;
+		private Revision revision;
+		private long refreshedMillis;
+		private boolean refreshing;
+		private boolean refreshAgain;
+		private ScheduledFuture<?> next;
+
+		Material(String key, String url) {
+			this.key = key;
+			this.url = url;
+		}
+
+		/**
+		 * @return estimated poll interval, 0 if not known yet
+		 */
+		synchronized long polled(Fetcher fetcher, long now) {
+			this.fetcher = fetcher;
+			if (lastPollMillis > 0) {
+				long interval = now - lastPollMillis;
+				// smooth, go adds jitter and polls may be delayed by busy material update threads
+				intervalMillis = intervalMillis > 0 ? (intervalMillis * 3 + interval) / 4 : interval;
+			}
+			lastPollMillis = now;
+			return intervalMillis;
+		}
+
+		synchronized Revision fresh(long notBeforeMillis) {
+			return refreshedMillis >= notBeforeMillis ? revision : null;
+		}
+
+		synchronized void update(Revision revision, long now) {
+			this.revision = revision;
+			this.refreshedMillis = now;
+		}
+
+		synchronized boolean forgettable(long now) {
+			long forgetMillis = intervalMillis > 0 ? FORGET_INTERVALS * intervalMillis : FORGET_UNKNOWN_INTERVAL_MILLIS;
+			return now - lastPollMillis > forgetMillis;
+		}
+
+		synchronized boolean startRefresh() {
+			if (refreshing) {
+				refreshAgain = true;
+				return false;
+			}
+			refreshing = true;
+			return true;
+		}
+
+		/**
+		 * @return true if another refresh was requested meanwhile
+		 */
+		synchronized boolean finishRefresh() {
+			refreshing = false;
+			boolean again = refreshAgain;
+			refreshAgain = false;
+			return again;
+		}
+
+		synchronized void schedule(ScheduledFuture<?> future) {
+			cancel();
+			next = future;
+		}
+
+		synchronized void cancel() {
+			if (next != null) {
+				next.cancel(false);
+				next = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.github.cnenning.artiscm;
+
+/**
+ * Circuit breaker of a single host. Opens after a number of consecutive failures, rejects requests
+ * while open and lets a limited number of probe requests through once the open period is over.
+ */
+public class CircuitBreaker {
+
+	public static enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final int failureThreshold;
+	private final long openMillis;
+	private final int halfOpenProbes;
+
+	private State state = State.CLOSED;
+	private int failures;
+	private long openedAt;
+	private int probesInFlight;
+
+	public CircuitBreaker(int failureThreshold, long openMillis, int halfOpenProbes) {
+		this.failureThreshold = failureThreshold;
+		this.openMillis = openMillis;
+		this.halfOpenProbes = halfOpenProbes;
+	}
+
+	public synchronized boolean allowRequest() {
+		if (state == State.OPEN) {
+			if (System.currentTimeMillis() - openedAt < openMillis) {
+				return false;
+			}
+			state = State.HALF_OPEN;
+			probesInFlight = 0;
+		}
+		if (state == State.HALF_OPEN) {
+			if (probesInFlight >= halfOpenProbes) {
+				return false;
+			}
+			probesInFlight++;
+		}
+		return true;
+	}
+
+	public synchronized void recordSuccess() {
+		state = State.CLOSED;
+		failures = 0;
+		probesInFlight = 0;
+	}
+
+	public synchronized void recordFailure() {
+		failures++;
+		if (state == State.HALF_OPEN || failures >= failureThreshold) {
+			state = State.OPEN;
+			openedAt = System.currentTimeMillis();
+			probesInFlight = 0;
+		}
+	}
+
+	/**
+	 * Request neither succeeded nor failed, e.g. it got aborted.
+	 */
+	public synchronized void recordIgnored() {
+		if (state == State.HALF_OPEN && probesInFlight > 0) {
+			probesInFlight--;
+		}
+	}
+
+	public synchronized State state() {
+		return state;
+	}
+
+	/**
+	 * @return millis until probe requests are let through again, 0 if not open
+	 */
+	public synchronized long retryAfter() {
+		if (state != State.OPEN) {
+			return 0;
+		}
+		return Math.max(0, openMillis - (System.currentTimeMillis() - openedAt));
+	}
+}
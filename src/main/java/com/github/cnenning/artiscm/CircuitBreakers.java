@@ -0,0 +1,36 @@
+package com.github.cnenning.artiscm;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per host circuit breakers. Disabled by default.
+ */
+public class CircuitBreakers {
+
+	public static final int DEFAULT_FAILURE_THRESHOLD = 0;
+	public static final long DEFAULT_OPEN_MILLIS = 30000;
+	public static final int HALF_OPEN_PROBES = 1;
+
+	private final int failureThreshold;
+	private final long openMillis;
+
+	private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+	public CircuitBreakers(int failureThreshold, long openMillis) {
+		this.failureThreshold = failureThreshold;
+		this.openMillis = openMillis;
+	}
+
+	public CircuitBreaker forHost(String host) {
+		CircuitBreaker breaker = breakers.get(host);
+		if (breaker == null) {
+			CircuitBreaker newBreaker = new CircuitBreaker(failureThreshold, openMillis, HALF_OPEN_PROBES);
+			breaker = breakers.putIfAbsent(host, newBreaker);
+			if (breaker == null) {
+				breaker = newBreaker;
+			}
+		}
+		return breaker;
+	}
+}
@@ -0,0 +1,15 @@
+package com.github.cnenning.artiscm;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request to a host whose circuit breaker is open.
+ */
+public class CircuitOpenException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	public CircuitOpenException(String host, long retryAfter) {
+		super("circuit breaker open for host '" + host + "' after repeated failures, retrying in " + retryAfter + " ms");
+	}
+}
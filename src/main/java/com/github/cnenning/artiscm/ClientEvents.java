@@ -0,0 +1,66 @@
+package com.github.cnenning.artiscm;
+
+import com.thoughtworks.go.plugin.api.logging.Logger;
+
+/**
+ * Hooks for Java Flight Recorder events of {@link ArtifactoryClient}.
+ * <p>
+ * The plugin targets Java 7, the JFR implementation lives in the <code>jfr</code> source set which is only
+ * packaged by <code>gradle -Pjfr</code> and only loaded if the go-server JVM has <code>jdk.jfr</code>.
+ * Otherwise these no-op hooks are used. Each <code>*Started()</code> returns null if its event is not
+ * recorded, callers skip all further work for null tokens.
+ */
+public class ClientEvents {
+
+	private static final String JFR_IMPLEMENTATION = "com.github.cnenning.artiscm.jfr.JfrClientEvents";
+
+	public static final ClientEvents INSTANCE = load();
+
+	private static ClientEvents load() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return (ClientEvents) Class.forName(JFR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+		} catch (ClassNotFoundException | LinkageError e) {
+			// jar built without -Pjfr or JVM older than 11
+		} catch (Exception e) {
+			Logger.getLoggerFor(ClientEvents.class).warn("could not load flight recorder events", e);
+		}
+		return new ClientEvents();
+	}
+
+	/**
+	 * @return token to pass to {@link #httpFinished}, null if not recorded
+	 */
+	public Object httpStarted() {
+		return null;
+	}
+
+	/**
+	 * @param urlTemplate material (url and pattern) the request was sent for, or url without query
+	 * @param status of response, -1 if there was none
+	 * @param bytes of response body read by handler
+	 * @param exception class name of exception the request failed with, null if it did not
+	 */
+	public void httpFinished(Object token, String urlTemplate, String type, int status, long bytes, String exception) {
+	}
+
+	/**
+	 * @return token to pass to {@link #listingParsed}, null if not recorded
+	 */
+	public Object parseStarted() {
+		return null;
+	}
+
+	public void listingParsed(Object token, String url, int entries, long bytes) {
+	}
+
+	/**
+	 * @return token to pass to {@link #downloadFinished}, null if not recorded
+	 */
+	public Object downloadStarted() {
+		return null;
+	}
+
+	public void downloadFinished(Object token, String url, String file, long bytes) {
+	}
+}
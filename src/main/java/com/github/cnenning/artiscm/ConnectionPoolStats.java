@@ -0,0 +1,220 @@
+package com.github.cnenning.artiscm;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.DefaultHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
+
+/**
+ * Connection pool state of the current transport and counters of all transports: leases, new connections,
+ * TLS handshakes and time spent waiting for a lease.
+ */
+public class ConnectionPoolStats implements ConnectionPoolStatsMBean {
+
+	private volatile PoolingHttpClientConnectionManager manager;
+
+	private final LatencyHistogram leaseWait = new LatencyHistogram();
+	private final LatencyHistogram tlsHandshake = new LatencyHistogram();
+	private final AtomicLong leases = new AtomicLong();
+	private final AtomicLong leaseTimeouts = new AtomicLong();
+	private final AtomicLong connectionsCreated = new AtomicLong();
+
+	/**
+	 * Creates connection manager whose pool is shown by these stats from now on.
+	 */
+	public PoolingHttpClientConnectionManager newConnectionManager() {
+		Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory())
+				.register("https", new CountingSslSocketFactory(SSLContexts.createDefault(), new DefaultHostnameVerifier()))
+				.build();
+		PoolingHttpClientConnectionManager newManager = new CountingConnectionManager(registry, new CountingConnectionFactory());
+		manager = newManager;
+		return newManager;
+	}
+
+	/**
+	 * @return leases waiting for a connection, 0 if there is no pool yet
+	 */
+	public int pending() {
+		PoolingHttpClientConnectionManager current = manager;
+		return current != null ? current.getTotalStats().getPending() : 0;
+	}
+
+	private PoolStats totalStats() {
+		PoolingHttpClientConnectionManager current = manager;
+		return current != null ? current.getTotalStats() : new PoolStats(0, 0, 0, 0);
+	}
+
+	@Override
+	public int getLeased() {
+		return totalStats().getLeased();
+	}
+
+	@Override
+	public int getAvailable() {
+		return totalStats().getAvailable();
+	}
+
+	@Override
+	public int getPending() {
+		return totalStats().getPending();
+	}
+
+	@Override
+	public int getMaxTotal() {
+		return totalStats().getMax();
+	}
+
+	@Override
+	public String[] getRoutes() {
+		PoolingHttpClientConnectionManager current = manager;
+		List<String> lines = new ArrayList<>();
+		if (current != null) {
+			for (HttpRoute route : current.getRoutes()) {
+				PoolStats stats = current.getStats(route);
+				lines.add(route.getTargetHost()
+						+ ", leased: " + stats.getLeased()
+						+ ", available: " + stats.getAvailable()
+						+ ", pending: " + stats.getPending()
+						+ ", max: " + stats.getMax());
+			}
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	@Override
+	public long getLeaseCount() {
+		return leases.get();
+	}
+
+	@Override
+	public long getLeaseTimeouts() {
+		return leaseTimeouts.get();
+	}
+
+	@Override
+	public long getConnectionsCreated() {
+		return connectionsCreated.get();
+	}
+
+	@Override
+	public double getReuseRatio() {
+		long leaseCount = leases.get();
+		return leaseCount > 0
+				? Math.max(0, 1 - (double) connectionsCreated.get() / leaseCount)
+				: 0;
+	}
+
+	@Override
+	public long getTlsHandshakes() {
+		return tlsHandshake.count();
+	}
+
+	@Override
+	public double getTlsHandshakeMeanMillis() {
+		return tlsHandshake.mean() / 1000;
+	}
+
+	@Override
+	public double getLeaseWaitMeanMillis() {
+		return leaseWait.mean() / 1000;
+	}
+
+	@Override
+	public double getLeaseWaitP99Millis() {
+		long micros = leaseWait.percentile(99);
+		return micros < 0 ? 0 : micros / 1000.0;
+	}
+
+	@Override
+	public double getLeaseWaitMaxMillis() {
+		return leaseWait.max() / 1000.0;
+	}
+
+	private static long micros(long startNanos) {
+		return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+	}
+
+	private class CountingConnectionManager extends PoolingHttpClientConnectionManager {
+
+		CountingConnectionManager(Registry<ConnectionSocketFactory> registry,
+				HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connFactory) {
+			super(registry, connFactory);
+		}
+
+		@Override
+		public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+			final ConnectionRequest request = super.requestConnection(route, state);
+			return new ConnectionRequest() {
+				@Override
+				public HttpClientConnection get(long timeout, TimeUnit tunit)
+						throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+					long start = System.nanoTime();
+					try {
+						HttpClientConnection connection = request.get(timeout, tunit);
+						leases.incrementAndGet();
+						return connection;
+					} catch (ConnectionPoolTimeoutException e) {
+						leaseTimeouts.incrementAndGet();
+						throw e;
+					} finally {
+						leaseWait.record(micros(start));
+					}
+				}
+
+				@Override
+				public boolean cancel() {
+					return request.cancel();
+				}
+			};
+		}
+	}
+
+	private class CountingConnectionFactory implements HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> {
+		@Override
+		public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config) {
+			connectionsCreated.incrementAndGet();
+			return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+		}
+	}
+
+	private class CountingSslSocketFactory extends SSLConnectionSocketFactory {
+
+		CountingSslSocketFactory(SSLContext sslContext, HostnameVerifier hostnameVerifier) {
+			super(sslContext, hostnameVerifier);
+		}
+
+		@Override
+		public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+			long start = System.nanoTime();
+			Socket sslSocket = super.createLayeredSocket(socket, target, port, context);
+			tlsHandshake.record(micros(start));
+			return sslSocket;
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package com.github.cnenning.artiscm;
+
+/**
+ * JMX view of {@link ConnectionPoolStats}, pool state is the one of the current transport.
+ */
+public interface ConnectionPoolStatsMBean {
+
+	int getLeased();
+	int getAvailable();
+	int getPending();
+	int getMaxTotal();
+
+	/**
+	 * @return leased, available and pending connections per target host
+	 */
+	String[] getRoutes();
+
+	long getLeaseCount();
+	long getLeaseTimeouts();
+	long getConnectionsCreated();
+
+	/**
+	 * @return share of leases served by a pooled connection
+	 */
+	double getReuseRatio();
+
+	long getTlsHandshakes();
+	double getTlsHandshakeMeanMillis();
+
+	double getLeaseWaitMeanMillis();
+	double getLeaseWaitP99Millis();
+	double getLeaseWaitMaxMillis();
+}
@@ -0,0 +1,184 @@
+package com.github.cnenning.artiscm;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.thoughtworks.go.plugin.api.logging.Logger;
+
+/**
+ * Logging for hot paths on top of go's plugin logger.
+ * <p>
+ * Debug messages are only built if go's logger has its debug level enabled. Its <code>isDebugEnabled()</code>
+ * exists since later versions of the plugin API than the one compiled against, so it is looked up reflectively;
+ * with older go-servers messages are always built and go's logger filters them. Messages use <code>{}</code>
+ * placeholders, arguments are converted to strings only when a message is actually logged. Request and response
+ * bodies passed through {@link #body(Object)} get passwords redacted and are truncated, those passed through
+ * {@link #debugBody(Object)} are only dumped if debug logging is enabled in plugin settings as well. Warnings
+ * that may repeat for each entry of a listing are rate limited.
+ */
+public class DiagnosticLog {
+
+	public static final int MAX_BODY_CHARS = 2000;
+	public static final long WARN_INTERVAL_MILLIS = 60000;
+	public static final String REDACTED = "****";
+	public static final String BODY_HIDDEN = "(enable Debug Logging in plugin settings to see it)";
+
+	/** string value of any json key containing "password" or "secret", also as {"value": ...} of go configurations */
+	private static final Pattern PASSWORD_VALUE = Pattern.compile(
+			"(\"[^\"]*(?:password|secret)[^\"]*\"\\s*:\\s*(?:\\{\\s*\"value\"\\s*:\\s*)?)\"(?:[^\"\\\\]|\\\\.)*\"",
+			Pattern.CASE_INSENSITIVE);
+
+	/** <code>Logger.isDebugEnabled()</code> of go-servers providing it, null otherwise */
+	private static final Method IS_DEBUG_ENABLED = isDebugEnabledMethod();
+
+	private static volatile boolean dumpBodies;
+
+	/** shared by all instances, clients are created per request */
+	private static final ConcurrentMap<String, Suppression> SUPPRESSIONS = new ConcurrentHashMap<>();
+
+	private final Logger logger;
+
+	public DiagnosticLog(Logger logger) {
+		this.logger = logger;
+	}
+
+	private static Method isDebugEnabledMethod() {
+		try {
+			return Logger.class.getMethod("isDebugEnabled");
+		} catch (NoSuchMethodException | LinkageError e) {
+			// older plugin api, or outside go-server
+			return null;
+		}
+	}
+
+	/**
+	 * @return whether go's logger has debug level enabled, true if it cannot tell
+	 */
+	public boolean isDebugEnabled() {
+		if (IS_DEBUG_ENABLED == null) {
+			return true;
+		}
+		try {
+			return Boolean.TRUE.equals(IS_DEBUG_ENABLED.invoke(logger));
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return true;
+		}
+	}
+
+	public static boolean isDumpBodies() {
+		return dumpBodies;
+	}
+
+	/**
+	 * @param enabled whether {@link #debugBody(Object)} dumps bodies, from debug logging in plugin settings
+	 */
+	public static void setDumpBodies(boolean enabled) {
+		dumpBodies = enabled;
+	}
+
+	public void debug(String pattern, Object... args) {
+		if (isDebugEnabled()) {
+			logger.debug(format(pattern, args));
+		}
+	}
+
+	public void debug(String message, Throwable t) {
+		if (isDebugEnabled()) {
+			logger.debug(message, t);
+		}
+	}
+
+	public void info(String pattern, Object... args) {
+		logger.info(format(pattern, args));
+	}
+
+	/**
+	 * Logs warning at most once per {@link #WARN_INTERVAL_MILLIS} and key, the next one
+	 * logged tells how many have been suppressed meanwhile.
+	 * @return false if warning was suppressed
+	 */
+	public boolean warnRateLimited(String key, String pattern, Object... args) {
+		Suppression suppression = SUPPRESSIONS.get(key);
+		if (suppression == null) {
+			Suppression newSuppression = new Suppression();
+			suppression = SUPPRESSIONS.putIfAbsent(key, newSuppression);
+			if (suppression == null) {
+				suppression = newSuppression;
+			}
+		}
+		int suppressed;
+		synchronized (suppression) {
+			long now = System.currentTimeMillis();
+			if (suppression.lastLogged != 0 && now - suppression.lastLogged < WARN_INTERVAL_MILLIS) {
+				suppression.suppressed++;
+				return false;
+			}
+			suppressed = suppression.suppressed;
+			suppression.suppressed = 0;
+			suppression.lastLogged = now;
+		}
+		String message = format(pattern, args);
+		if (suppressed > 0) {
+			message += " (" + suppressed + " similar warnings suppressed)";
+		}
+		logger.warn(message);
+		return true;
+	}
+
+	/**
+	 * @return argument that renders redacted and truncated string of body only when logged
+	 */
+	public static Object body(final Object body) {
+		return new Object() {
+			@Override
+			public String toString() {
+				return body != null ? truncate(redact(body.toString())) : "null";
+			}
+		};
+	}
+
+	/**
+	 * @return like {@link #body(Object)} if debug logging is enabled in plugin settings, a hint to enable it otherwise
+	 */
+	public static Object debugBody(Object body) {
+		return dumpBodies ? body(body) : BODY_HIDDEN;
+	}
+
+	static String redact(String text) {
+		Matcher matcher = PASSWORD_VALUE.matcher(text);
+		return matcher.find() ? matcher.replaceAll("$1\"" + REDACTED + "\"") : text;
+	}
+
+	static String truncate(String text) {
+		if (text.length() <= MAX_BODY_CHARS) {
+			return text;
+		}
+		return text.substring(0, MAX_BODY_CHARS) + "... (" + text.length() + " chars)";
+	}
+
+	static String format(String pattern, Object... args) {
+		if (args == null || args.length == 0) {
+			return pattern;
+		}
+		StringBuilder sb = new StringBuilder(pattern.length() + 16 * args.length);
+		int start = 0;
+		for (Object arg : args) {
+			int index = pattern.indexOf("{}", start);
+			if (index < 0) {
+				break;
+			}
+			sb.append(pattern, start, index).append(arg);
+			start = index + 2;
+		}
+		sb.append(pattern, start, pattern.length());
+		return sb.toString();
+	}
+
+	private static class Suppression {
+		long lastLogged;
+		int suppressed;
+	}
+}
@@ -0,0 +1,66 @@
+package com.github.cnenning.artiscm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.cnenning.artiscm.ArtifactoryClient.Revision;
+
+/**
+ * Files of a revision as listed at poll time, stored in revision data so checkout can download them
+ * without listing the version directory again. One line per file: size in bytes, -1 if the listing
+ * did not state it exactly, a space and the file name.
+ */
+public class FileManifest {
+
+	public static final String DATA_KEY = "MANIFEST";
+	/** longer manifests are not stored, checkout lists files instead */
+	public static final int MAX_LENGTH = 32 * 1024;
+
+	/**
+	 * @return null if there are no files, a name contains a line break or manifest would be too long
+	 */
+	public static String encode(List<Revision> files) {
+		if (files == null || files.isEmpty()) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder();
+		for (Revision file : files) {
+			if (file.revision.indexOf('\n') >= 0) {
+				return null;
+			}
+			if (sb.length() > 0) {
+				sb.append('\n');
+			}
+			sb.append(file.size).append(' ').append(file.revision);
+			if (sb.length() > MAX_LENGTH) {
+				return null;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return null if manifest is null or malformed
+	 */
+	public static List<Revision> decode(String manifest) {
+		if (manifest == null || manifest.isEmpty()) {
+			return null;
+		}
+		List<Revision> files = new ArrayList<>();
+		for (String line : manifest.split("\n")) {
+			int space = line.indexOf(' ');
+			if (space < 1 || space == line.length() - 1) {
+				return null;
+			}
+			Revision file = new Revision();
+			try {
+				file.size = Long.parseLong(line.substring(0, space));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+			file.revision = line.substring(space + 1);
+			files.add(file);
+		}
+		return files;
+	}
+}
@@ -0,0 +1,88 @@
+package com.github.cnenning.artiscm;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Settings and shared state for hedged listing requests.
+ * If a listing did not answer within a percentile of recent latency of its host a second request is sent.
+ */
+public class Hedging {
+
+	public static final int DEFAULT_MAX_OUTSTANDING = 4;
+
+	/** samples needed before hedging kicks in */
+	public static final int MIN_SAMPLES = 20;
+	private static final int SAMPLE_SIZE = 200;
+
+	private final double percentile;
+	private final Semaphore outstanding;
+	private final ConcurrentMap<String, LatencyTracker> latencies = new ConcurrentHashMap<>();
+	private final ExecutorService executor;
+
+	public Hedging(double percentile, int maxOutstanding) {
+		this.percentile = percentile;
+		this.outstanding = new Semaphore(maxOutstanding);
+		this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger counter = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "artifactory-listing-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public ExecutorService executor() {
+		return executor;
+	}
+
+	public void record(String host, long millis) {
+		LatencyTracker tracker = latencies.get(host);
+		if (tracker == null) {
+			LatencyTracker newTracker = new LatencyTracker(SAMPLE_SIZE);
+			tracker = latencies.putIfAbsent(host, newTracker);
+			if (tracker == null) {
+				tracker = newTracker;
+			}
+		}
+		tracker.record(millis);
+	}
+
+	/**
+	 * @return millis to wait before sending a hedge, -1 if there are not enough samples yet
+	 */
+	public long hedgeDelay(String host) {
+		LatencyTracker tracker = latencies.get(host);
+		if (tracker == null || tracker.count() < MIN_SAMPLES) {
+			return -1;
+		}
+		return Math.max(1, tracker.percentile(percentile));
+	}
+
+	public boolean tryAcquireHedge() {
+		return outstanding.tryAcquire();
+	}
+
+	public void releaseHedge() {
+		outstanding.release();
+	}
+
+	/**
+	 * @return latency samples kept for host
+	 */
+	public int samples(String host) {
+		LatencyTracker tracker = latencies.get(host);
+		return tracker != null ? tracker.count() : 0;
+	}
+
+	public int availableHedges() {
+		return outstanding.availablePermits();
+	}
+}
@@ -0,0 +1,45 @@
+package com.github.cnenning.artiscm;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.github.cnenning.artiscm.ArtifactoryClient.Revision;
+
+/**
+ * Last known good revision of each material, served while the circuit breaker of its host is open.
+ * Kept by the plugin instead of the transport, so it survives reloads of settings.
+ * Least recently polled materials are dropped beyond max entries.
+ */
+public class LastGoodRevisions {
+
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	private final int maxEntries;
+
+	private final LinkedHashMap<String, Revision> revisions = new LinkedHashMap<String, Revision>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Revision> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	public LastGoodRevisions() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	public LastGoodRevisions(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	public synchronized void remember(String materialKey, Revision revision) {
+		revisions.put(materialKey, revision);
+	}
+
+	public synchronized Revision get(String materialKey) {
+		return revisions.get(materialKey);
+	}
+
+	public synchronized int size() {
+		return revisions.size();
+	}
+}
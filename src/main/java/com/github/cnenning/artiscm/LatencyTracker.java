@@ -0,0 +1,47 @@
+package com.github.cnenning.artiscm;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latest n latency samples (in millis) and answers percentile queries on them.
+ */
+public class LatencyTracker {
+
+	private final long[] samples;
+	private int next;
+	private int count;
+
+	public LatencyTracker(int size) {
+		samples = new long[size];
+	}
+
+	public synchronized void record(long millis) {
+		samples[next] = millis;
+		next = (next + 1) % samples.length;
+		if (count < samples.length) {
+			count++;
+		}
+	}
+
+	public synchronized int count() {
+		return count;
+	}
+
+	/**
+	 * @param percentile value between 0 and 100
+	 * @return latency of given percentile or -1 if there are no samples
+	 */
+	public long percentile(double percentile) {
+		long[] sorted;
+		synchronized (this) {
+			if (count == 0) {
+				return -1;
+			}
+			sorted = Arrays.copyOf(samples, count);
+		}
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+		index = Math.max(0, Math.min(sorted.length - 1, index));
+		return sorted[index];
+	}
+}
@@ -0,0 +1,114 @@
+package com.github.cnenning.artiscm;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers results built from listings together with a hash of the listing body. While the body of a listing
+ * does not change, results are reused instead of parsing it again. Artifactory sends no ETag for listings,
+ * so this saves parsing, though not the request. Least recently used listings are dropped beyond max entries.
+ * Disabled unless configured with max entries above 0.
+ */
+public class ListingMemo {
+
+	public static final int DEFAULT_MAX_ENTRIES = 0;
+	/** results of different callbacks kept per listing */
+	static final int MAX_RESULTS_PER_LISTING = 8;
+
+	private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+	private final LinkedHashMap<String, Listing> listings = new LinkedHashMap<String, Listing>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Listing> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param maxEntries listings to remember, 0 disables the memo
+	 */
+	public synchronized void configure(int maxEntries) {
+		this.maxEntries = maxEntries;
+		if (listings.size() > maxEntries) {
+			listings.clear();
+		}
+	}
+
+	public synchronized boolean isEnabled() {
+		return maxEntries > 0;
+	}
+
+	/**
+	 * @return digest to hash listing bodies with
+	 */
+	public static MessageDigest digest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param key identifies the callback and its parameters
+	 * @return result remembered for listing with same hash, null if there is none
+	 */
+	public synchronized Object result(String url, byte[] hash, String key) {
+		Listing listing = listings.get(url);
+		Object result = listing != null && MessageDigest.isEqual(listing.hash, hash)
+				? listing.results.get(key)
+				: null;
+		if (result != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return result;
+	}
+
+	/**
+	 * Remembers result, drops results of other hashes of same listing.
+	 */
+	public synchronized void remember(String url, byte[] hash, String key, Object result) {
+		if (maxEntries < 1 || result == null) {
+			return;
+		}
+		Listing listing = listings.get(url);
+		if (listing == null || !MessageDigest.isEqual(listing.hash, hash)) {
+			listing = new Listing(hash);
+			listings.put(url, listing);
+		}
+		if (listing.results.size() >= MAX_RESULTS_PER_LISTING && !listing.results.containsKey(key)) {
+			listing.results.clear();
+		}
+		listing.results.put(key, result);
+	}
+
+	public synchronized int size() {
+		return listings.size();
+	}
+
+	public long hits() {
+		return hits.get();
+	}
+
+	public long misses() {
+		return misses.get();
+	}
+
+	private static class Listing {
+		final byte[] hash;
+		final Map<String, Object> results = new HashMap<>();
+
+		Listing(byte[] hash) {
+			this.hash = hash;
+		}
+	}
+}
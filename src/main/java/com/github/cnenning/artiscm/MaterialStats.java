@@ -0,0 +1,157 @@
+package com.github.cnenning.artiscm;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last poll of each material (url and pattern) and a report of the slowest ones.
+ * Polls answered from memory by background refresh do no work, they are only counted and keep the last poll
+ * that did, which may be one of background refresh. Least recently polled materials are dropped beyond max entries.
+ */
+public class MaterialStats implements MaterialStatsMBean {
+
+	public static final int TOP_N = 10;
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	private final int maxEntries;
+
+	private final LinkedHashMap<String, Material> materials = new LinkedHashMap<String, Material>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Material> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	public MaterialStats() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	public MaterialStats(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Records a poll that did work, of a latest-revision request or of background refresh.
+	 */
+	public void finishPoll(String materialKey, PollStats poll) {
+		poll.finish();
+		Material material;
+		synchronized (this) {
+			material = materials.get(materialKey);
+			if (material == null) {
+				material = new Material(poll);
+				materials.put(materialKey, material);
+			}
+		}
+		material.lastPoll = poll;
+		if (!poll.isBackground()) {
+			material.polls.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Counts a latest-revision request answered from memory, only for materials with a recorded poll.
+	 */
+	public void servedFromMemory(String materialKey) {
+		Material material;
+		synchronized (this) {
+			material = materials.get(materialKey);
+		}
+		if (material != null) {
+			material.polls.incrementAndGet();
+			material.servedFromMemory.incrementAndGet();
+		}
+	}
+
+	public synchronized PollStats lastPoll(String materialKey) {
+		Material material = materials.get(materialKey);
+		return material != null ? material.lastPoll : null;
+	}
+
+	/**
+	 * @return polls of material answered from memory
+	 */
+	public synchronized long servedFromMemoryCount(String materialKey) {
+		Material material = materials.get(materialKey);
+		return material != null ? material.servedFromMemory.get() : 0;
+	}
+
+	public List<String> report(int topN) {
+		List<Map.Entry<String, Material>> entries;
+		synchronized (this) {
+			entries = new ArrayList<>(materials.entrySet());
+		}
+		Collections.sort(entries, new Comparator<Map.Entry<String, Material>>() {
+			@Override
+			public int compare(Map.Entry<String, Material> a, Map.Entry<String, Material> b) {
+				return Long.compare(b.getValue().lastPoll.durationMillis(), a.getValue().lastPoll.durationMillis());
+			}
+		});
+		List<String> lines = new ArrayList<>();
+		for (Map.Entry<String, Material> entry : entries.subList(0, Math.min(topN, entries.size()))) {
+			PollStats poll = entry.getValue().lastPoll;
+			lines.add(poll.durationMillis() + " ms"
+					+ (poll.isBackground() ? " (background refresh)" : "")
+					+ ", entries: " + poll.entries()
+					+ ", parse: " + poll.parseMillis() + " ms"
+					+ ", http calls: " + poll.httpCalls()
+					+ ", bytes: " + poll.bytes()
+					+ ", polls: " + entry.getValue().polls.get()
+					+ ", served from memory: " + entry.getValue().servedFromMemory.get()
+					+ ", material: " + entry.getKey());
+		}
+		return lines;
+	}
+
+	/**
+	 * Replaces file with report of {@link #TOP_N} slowest materials.
+	 */
+	public void writeReport(File file) throws IOException {
+		File tmpFile = new File(file.getPath() + ".tmp");
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), "UTF-8")) {
+			writer.write("slowest materials by duration of last poll, " + new Date() + "\n");
+			for (String line : report(TOP_N)) {
+				writer.write(line);
+				writer.write("\n");
+			}
+		}
+		if (!tmpFile.renameTo(file)) {
+			file.delete();
+			if (!tmpFile.renameTo(file)) {
+				throw new IOException("could not write " + file);
+			}
+		}
+	}
+
+	@Override
+	public synchronized int getMaterialCount() {
+		return materials.size();
+	}
+
+	@Override
+	public String[] getSlowestMaterials() {
+		List<String> lines = report(TOP_N);
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	private static class Material {
+		volatile PollStats lastPoll;
+		final AtomicLong polls = new AtomicLong();
+		final AtomicLong servedFromMemory = new AtomicLong();
+
+		Material(PollStats lastPoll) {
+			this.lastPoll = lastPoll;
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package com.github.cnenning.artiscm;
+
+/**
+ * JMX view of {@link MaterialStats}.
+ */
+public interface MaterialStatsMBean {
+
+	int getMaterialCount();
+
+	/**
+	 * @return report lines of materials whose last poll took longest, slowest first
+	 */
+	String[] getSlowestMaterials();
+}
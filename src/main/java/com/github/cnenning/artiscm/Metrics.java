@@ -0,0 +1,156 @@
+package com.github.cnenning.artiscm;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.thoughtworks.go.plugin.api.logging.Logger;
+
+/**
+ * Metrics of go requests, each request name is registered as MBean at the platform MBean server on first use, e.g.
+ * <code>com.github.cnenning.artiscm:type=Requests,plugin=scm,request=latest-revision</code>.
+ * Per material poll statistics are registered as <code>type=Materials</code>, the HTTP connection pool as
+ * <code>type=ConnectionPool</code> and recent slow traces as <code>type=Tracing</code>.
+ * MBeans are registered by {@link #register()} when the plugin initializes, not on construction.
+ */
+public class Metrics {
+
+	public static final String DOMAIN = "com.github.cnenning.artiscm";
+
+	protected Logger logger = Logger.getLoggerFor(getClass());
+
+	private final String plugin;
+	private final ConcurrentMap<String, RequestMetrics> requests = new ConcurrentHashMap<>();
+	private final MaterialStats materials = new MaterialStats();
+	private final ConnectionPoolStats connectionPool = new ConnectionPoolStats();
+	private final Tracing tracing = new Tracing();
+
+	/** names registered by this instance, guarded by this */
+	private final List<ObjectName> registeredNames = new ArrayList<>();
+	private boolean registered;
+
+	/**
+	 * @param plugin distinguishes scm and package plugin which live in the same go-server JVM
+	 */
+	public Metrics(String plugin) {
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Registers MBeans of this instance and of requests used later on, does nothing if already registered.
+	 */
+	public synchronized void register() {
+		if (registered) {
+			return;
+		}
+		registered = true;
+		try {
+			register(materialsObjectName(), materials);
+		} catch (Exception e) {
+			logger.warn("could not register material stats", e);
+		}
+		try {
+			register(objectNameOfType("ConnectionPool"), connectionPool);
+		} catch (Exception e) {
+			logger.warn("could not register connection pool stats", e);
+		}
+		try {
+			register(objectNameOfType("Tracing"), tracing);
+		} catch (Exception e) {
+			logger.warn("could not register tracing", e);
+		}
+		for (Map.Entry<String, RequestMetrics> entry : requests.entrySet()) {
+			registerRequest(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Unregisters all MBeans registered by this instance.
+	 */
+	public synchronized void unregister() {
+		registered = false;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : registeredNames) {
+			try {
+				if (server.isRegistered(name)) {
+					server.unregisterMBean(name);
+				}
+			} catch (Exception e) {
+				logger.warn("could not unregister MBean: " + name, e);
+			}
+		}
+		registeredNames.clear();
+	}
+
+	public MaterialStats materials() {
+		return materials;
+	}
+
+	public ConnectionPoolStats connectionPool() {
+		return connectionPool;
+	}
+
+	public Tracing tracing() {
+		return tracing;
+	}
+
+	public RequestMetrics forRequest(String requestName) {
+		RequestMetrics metrics = requests.get(requestName);
+		if (metrics == null) {
+			RequestMetrics newMetrics = new RequestMetrics();
+			metrics = requests.putIfAbsent(requestName, newMetrics);
+			if (metrics == null) {
+				metrics = newMetrics;
+				registerRequest(requestName, metrics);
+			}
+		}
+		return metrics;
+	}
+
+	public ObjectName objectName(String requestName) throws Exception {
+		Hashtable<String, String> properties = new Hashtable<>();
+		properties.put("type", "Requests");
+		properties.put("plugin", plugin);
+		properties.put("request", requestName);
+		return new ObjectName(DOMAIN, properties);
+	}
+
+	public ObjectName materialsObjectName() throws Exception {
+		return objectNameOfType("Materials");
+	}
+
+	public ObjectName objectNameOfType(String type) throws Exception {
+		Hashtable<String, String> properties = new Hashtable<>();
+		properties.put("type", type);
+		properties.put("plugin", plugin);
+		return new ObjectName(DOMAIN, properties);
+	}
+
+	private synchronized void registerRequest(String requestName, RequestMetrics metrics) {
+		if (!registered) {
+			return;
+		}
+		try {
+			register(objectName(requestName), metrics);
+		} catch (Exception e) {
+			logger.warn("could not register metrics of request: " + requestName, e);
+		}
+	}
+
+	private void register(ObjectName name, Object mbean) throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		// a newer plugin instance replaces the MBeans of an older one
+		if (server.isRegistered(name)) {
+			server.unregisterMBean(name);
+		}
+		server.registerMBean(mbean, name);
+		registeredNames.add(name);
+	}
+}
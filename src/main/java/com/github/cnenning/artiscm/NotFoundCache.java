@@ -0,0 +1,83 @@
+package com.github.cnenning.artiscm;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Short lived cache of listings answered with 404, those are not requested again until their entry expires.
+ * Kept by the plugin and configured in place, independent of circuit breakers.
+ */
+public class NotFoundCache {
+
+	public static final long DEFAULT_MILLIS = 10000;
+	/** urls cached at most, expired ones are dropped first */
+	public static final int MAX_ENTRIES = 10000;
+
+	private volatile long millis = DEFAULT_MILLIS;
+
+	private final ConcurrentMap<String, Long> notFound = new ConcurrentHashMap<>();
+
+	/**
+	 * @param millis a url answered with 404 is not requested again, 0 disables the cache
+	 */
+	public void configure(long millis) {
+		this.millis = millis;
+		if (millis < 1) {
+			notFound.clear();
+		}
+	}
+
+	public void remember(String url) {
+		long currentMillis = millis;
+		if (currentMillis > 0) {
+			long now = System.currentTimeMillis();
+			if (notFound.size() >= MAX_ENTRIES) {
+				removeExpired(now);
+				if (notFound.size() >= MAX_ENTRIES) {
+					return;
+				}
+			}
+			notFound.put(url, Long.valueOf(now + currentMillis));
+		}
+	}
+
+	private void removeExpired(long now) {
+		Iterator<Map.Entry<String, Long>> iterator = notFound.entrySet().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().getValue().longValue() < now) {
+				iterator.remove();
+			}
+		}
+	}
+
+	public boolean isKnownNotFound(String url) {
+		Long expiry = notFound.get(url);
+		if (expiry == null) {
+			return false;
+		}
+		if (expiry.longValue() < System.currentTimeMillis()) {
+			notFound.remove(url, expiry);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return urls currently cached as not found
+	 */
+	public Set<String> urls() {
+		return new HashSet<>(notFound.keySet());
+	}
+
+	public void forget(String url) {
+		notFound.remove(url);
+	}
+
+	public int size() {
+		return notFound.size();
+	}
+}
@@ -0,0 +1,77 @@
+package com.github.cnenning.artiscm;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Work done by one poll of a material, i.e. by one latest-revision request or one fetch of background refresh.
+ * Counters are updated concurrently when listings are hedged.
+ */
+public class PollStats {
+
+	private final long startNanos = System.nanoTime();
+	private final boolean background;
+	private final AtomicLong httpCalls = new AtomicLong();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLong entries = new AtomicLong();
+	private final AtomicLong parseNanos = new AtomicLong();
+	private volatile long durationMillis = -1;
+
+	public PollStats() {
+		this(false);
+	}
+
+	/**
+	 * @param background whether it is a fetch of background refresh instead of a latest-revision request
+	 */
+	public PollStats(boolean background) {
+		this.background = background;
+	}
+
+	public void httpCall() {
+		httpCalls.incrementAndGet();
+	}
+
+	public void bytes(long count) {
+		bytes.addAndGet(count);
+	}
+
+	public void entries(int count) {
+		entries.addAndGet(count);
+	}
+
+	public void parsed(long nanos) {
+		parseNanos.addAndGet(nanos);
+	}
+
+	void finish() {
+		durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * @return -1 while poll is running
+	 */
+	public long durationMillis() {
+		return durationMillis;
+	}
+
+	public long httpCalls() {
+		return httpCalls.get();
+	}
+
+	public long bytes() {
+		return bytes.get();
+	}
+
+	public long entries() {
+		return entries.get();
+	}
+
+	public boolean isBackground() {
+		return background;
+	}
+
+	public long parseMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(parseNanos.get());
+	}
+}
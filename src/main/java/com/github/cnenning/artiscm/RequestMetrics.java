@@ -0,0 +1,118 @@
+package com.github.cnenning.artiscm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency per outcome and HTTP work of one go request name.
+ */
+public class RequestMetrics implements RequestMetricsMBean {
+
+	private final LatencyHistogram success = new LatencyHistogram();
+	private final LatencyHistogram error = new LatencyHistogram();
+	private final AtomicLong httpCalls = new AtomicLong();
+	private final AtomicLong httpBytes = new AtomicLong();
+	private final AtomicLong parsedEntries = new AtomicLong();
+
+	public void record(long micros, boolean successful) {
+		(successful ? success : error).record(micros);
+	}
+
+	public void httpCall() {
+		httpCalls.incrementAndGet();
+	}
+
+	public void httpBytes(long bytes) {
+		httpBytes.addAndGet(bytes);
+	}
+
+	public void parsedEntries(int entries) {
+		parsedEntries.addAndGet(entries);
+	}
+
+	public LatencyHistogram success() {
+		return success;
+	}
+
+	public LatencyHistogram error() {
+		return error;
+	}
+
+	@Override
+	public long getSuccessCount() {
+		return success.count();
+	}
+
+	@Override
+	public double getSuccessMeanMillis() {
+		return success.mean() / 1000;
+	}
+
+	@Override
+	public double getSuccessP50Millis() {
+		return millis(success.percentile(50));
+	}
+
+	@Override
+	public double getSuccessP95Millis() {
+		return millis(success.percentile(95));
+	}
+
+	@Override
+	public double getSuccessP99Millis() {
+		return millis(success.percentile(99));
+	}
+
+	@Override
+	public double getSuccessMaxMillis() {
+		return millis(success.max());
+	}
+
+	@Override
+	public long getErrorCount() {
+		return error.count();
+	}
+
+	@Override
+	public double getErrorMeanMillis() {
+		return error.mean() / 1000;
+	}
+
+	@Override
+	public double getErrorP50Millis() {
+		return millis(error.percentile(50));
+	}
+
+	@Override
+	public double getErrorP95Millis() {
+		return millis(error.percentile(95));
+	}
+
+	@Override
+	public double getErrorP99Millis() {
+		return millis(error.percentile(99));
+	}
+
+	@Override
+	public double getErrorMaxMillis() {
+		return millis(error.max());
+	}
+
+	@Override
+	public long getHttpCalls() {
+		return httpCalls.get();
+	}
+
+	@Override
+	public long getHttpBytes() {
+		return httpBytes.get();
+	}
+
+	@Override
+	public long getParsedEntries() {
+		return parsedEntries.get();
+	}
+
+	private double millis(long micros) {
+		return micros < 0 ? 0 : micros / 1000d;
+	}
+}
@@ -0,0 +1,25 @@
+package com.github.cnenning.artiscm;
+
+/**
+ * JMX view of {@link RequestMetrics}, latencies in milliseconds.
+ */
+public interface RequestMetricsMBean {
+
+	long getSuccessCount();
+	double getSuccessMeanMillis();
+	double getSuccessP50Millis();
+	double getSuccessP95Millis();
+	double getSuccessP99Millis();
+	double getSuccessMaxMillis();
+
+	long getErrorCount();
+	double getErrorMeanMillis();
+	double getErrorP50Millis();
+	double getErrorP95Millis();
+	double getErrorP99Millis();
+	double getErrorMaxMillis();
+
+	long getHttpCalls();
+	long getHttpBytes();
+	long getParsedEntries();
+}
@@ -0,0 +1,141 @@
+package com.github.cnenning.artiscm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spans of one sampled go request. The trace of a request is bound to the thread handling it,
+ * code that is not sampled only pays for one thread local lookup per span:
+ * <pre>
+ * long start = Trace.start();
+ * ...
+ * Trace.end("http", url, start);
+ * </pre>
+ */
+public class Trace {
+
+	public static final long NOT_TRACED = Long.MIN_VALUE;
+
+	private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+	private final String requestName;
+	private final long startMillis = System.currentTimeMillis();
+	private final long startNanos = System.nanoTime();
+	private final List<Span> spans = new ArrayList<>();
+	private volatile long durationNanos = -1;
+
+	public Trace(String requestName) {
+		this.requestName = requestName;
+	}
+
+	/**
+	 * @return trace of request handled by current thread, null if not sampled
+	 */
+	public static Trace current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Binds trace to current thread, e.g. to worker threads doing part of a request. Null unbinds.
+	 */
+	public static void bind(Trace trace) {
+		if (trace != null) {
+			CURRENT.set(trace);
+		} else {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * @return start of a span to pass to {@link #end}, {@link #NOT_TRACED} if request is not sampled
+	 */
+	public static long start() {
+		return CURRENT.get() != null ? System.nanoTime() : NOT_TRACED;
+	}
+
+	/**
+	 * @param detail e.g. url, may be null
+	 */
+	public static void end(String span, String detail, long start) {
+		if (start == NOT_TRACED) {
+			return;
+		}
+		Trace trace = CURRENT.get();
+		if (trace != null) {
+			trace.add(new Span(span, detail, Thread.currentThread().getName(), start - trace.startNanos, System.nanoTime() - start));
+		}
+	}
+
+	private synchronized void add(Span span) {
+		spans.add(span);
+	}
+
+	void finish() {
+		durationNanos = System.nanoTime() - startNanos;
+	}
+
+	public String requestName() {
+		return requestName;
+	}
+
+	public long durationMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+	}
+
+	public synchronized List<Span> spans() {
+		List<Span> copy = new ArrayList<>(spans);
+		Collections.sort(copy, new Comparator<Span>() {
+			@Override
+			public int compare(Span a, Span b) {
+				return Long.compare(a.offsetNanos, b.offsetNanos);
+			}
+		});
+		return copy;
+	}
+
+	/**
+	 * @return one line for the request and one for each span, ordered by start
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(new Date(startMillis)).append(' ').append(requestName).append(": ").append(durationMillis()).append(" ms");
+		for (Span span : spans()) {
+			sb.append("\n  +").append(TimeUnit.NANOSECONDS.toMillis(span.offsetNanos)).append(" ms ")
+				.append(span.name).append(": ").append(span.durationMicros() / 1000.0).append(" ms");
+			if (span.detail != null) {
+				sb.append(' ').append(span.detail);
+			}
+			sb.append(" [").append(span.thread).append(']');
+		}
+		return sb.toString();
+	}
+
+	public static class Span {
+		final String name;
+		final String detail;
+		final String thread;
+		final long offsetNanos;
+		final long durationNanos;
+
+		Span(String name, String detail, String thread, long offsetNanos, long durationNanos) {
+			this.name = name;
+			this.detail = detail;
+			this.thread = thread;
+			this.offsetNanos = offsetNanos;
+			this.durationNanos = durationNanos;
+		}
+
+		public String name() {
+			return name;
+		}
+
+		public long durationMicros() {
+			return TimeUnit.NANOSECONDS.toMicros(durationNanos);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.github.cnenning.artiscm;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Samples go requests for tracing and keeps the most recent slow traces in a ring buffer.
+ * Sampling is off by default.
+ */
+public class Tracing implements TracingMBean {
+
+	public static final int CAPACITY = 50;
+	public static final long DEFAULT_SLOW_MILLIS = 1000;
+
+	private volatile double samplePercent;
+	private volatile long slowMillis = DEFAULT_SLOW_MILLIS;
+
+	private final AtomicReferenceArray<Trace> slowTraces = new AtomicReferenceArray<>(CAPACITY);
+	private final AtomicLong slowCount = new AtomicLong();
+	private final AtomicLong tracedCount = new AtomicLong();
+
+	/**
+	 * @param samplePercent share of requests to trace, 0 disables tracing
+	 * @param slowMillis traces taking at least this long are kept
+	 */
+	public void configure(double samplePercent, long slowMillis) {
+		this.samplePercent = samplePercent;
+		this.slowMillis = slowMillis;
+	}
+
+	/**
+	 * @return trace bound to current thread, null if request is not sampled
+	 */
+	public Trace begin(String requestName) {
+		double percent = samplePercent;
+		if (percent <= 0 || (percent < 100 && ThreadLocalRandom.current().nextDouble(100) >= percent)) {
+			return null;
+		}
+		Trace trace = new Trace(requestName);
+		Trace.bind(trace);
+		return trace;
+	}
+
+	/**
+	 * Unbinds trace from current thread and keeps it if it was slow.
+	 */
+	public void finish(Trace trace) {
+		if (trace == null) {
+			return;
+		}
+		Trace.bind(null);
+		trace.finish();
+		tracedCount.incrementAndGet();
+		if (trace.durationMillis() >= slowMillis) {
+			long index = slowCount.getAndIncrement();
+			slowTraces.set((int) (index % CAPACITY), trace);
+		}
+	}
+
+	/**
+	 * @return kept traces, most recent first
+	 */
+	public List<Trace> slowTraces() {
+		long count = slowCount.get();
+		List<Trace> traces = new ArrayList<>();
+		for (long i = count - 1; i >= 0 && i >= count - CAPACITY; i--) {
+			Trace trace = slowTraces.get((int) (i % CAPACITY));
+			if (trace != null) {
+				traces.add(trace);
+			}
+		}
+		return traces;
+	}
+
+	@Override
+	public double getSamplePercent() {
+		return samplePercent;
+	}
+
+	@Override
+	public long getSlowMillis() {
+		return slowMillis;
+	}
+
+	@Override
+	public long getTracedCount() {
+		return tracedCount.get();
+	}
+
+	@Override
+	public long getSlowCount() {
+		return slowCount.get();
+	}
+
+	@Override
+	public String[] getSlowTraces() {
+		List<Trace> traces = slowTraces();
+		String[] lines = new String[traces.size()];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = traces.get(i).toString();
+		}
+		return lines;
+	}
+
+	@Override
+	public String dumpSlowTraces(String path) throws IOException {
+		File file = new File(path);
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+			for (String trace : getSlowTraces()) {
+				writer.write(trace);
+				writer.write("\n\n");
+			}
+		}
+		return file.getAbsolutePath();
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < CAPACITY; i++) {
+			slowTraces.set(i, null);
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package com.github.cnenning.artiscm;
+
+import java.io.IOException;
+
+/**
+ * JMX view of {@link Tracing}.
+ */
+public interface TracingMBean {
+
+	double getSamplePercent();
+	long getSlowMillis();
+
+	long getTracedCount();
+	long getSlowCount();
+
+	/**
+	 * @return recent slow traces, most recent first, one line per span
+	 */
+	String[] getSlowTraces();
+
+	/**
+	 * Writes recent slow traces to given file.
+	 * @return absolute path of file
+	 */
+	String dumpSlowTraces(String path) throws IOException;
+
+	void clear();
+}
@@ -0,0 +1,95 @@
+package com.github.cnenning.artiscm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.client.HttpClient;
+
+import com.thoughtworks.go.plugin.api.logging.Logger;
+
+/**
+ * HTTP client and request policies built from one version of plugin settings.
+ * <p>
+ * Requests lease a transport for their whole duration. When settings change a new transport replaces
+ * this one, which gets closed as soon as the last lease has been released.
+ */
+public class Transport {
+
+	protected Logger logger = Logger.getLoggerFor(getClass());
+
+	final Map settings;
+	final HttpClient httpClient;
+	final Hedging hedging;
+	final CircuitBreakers circuitBreakers;
+	final AdmissionControl admissionControl;
+	final AdaptiveTimeouts adaptiveTimeouts;
+
+	/** leases plus one for being the current transport */
+	private final AtomicInteger references = new AtomicInteger(1);
+
+	public Transport(Map settings, HttpClient httpClient, Hedging hedging, CircuitBreakers circuitBreakers,
+			AdmissionControl admissionControl, AdaptiveTimeouts adaptiveTimeouts) {
+		this.settings = settings;
+		this.httpClient = httpClient;
+		this.hedging = hedging;
+		this.circuitBreakers = circuitBreakers;
+		this.admissionControl = admissionControl;
+		this.adaptiveTimeouts = adaptiveTimeouts;
+	}
+
+	public HttpClient httpClient() {
+		return httpClient;
+	}
+
+	public ArtifactoryClient artifactoryClient() {
+		return new ArtifactoryClient(hedging, circuitBreakers, admissionControl, adaptiveTimeouts);
+	}
+
+	/**
+	 * @return false if transport is already closed, caller should lease the current one instead
+	 */
+	public boolean lease() {
+		while (true) {
+			int count = references.get();
+			if (count < 1) {
+				return false;
+			}
+			if (references.compareAndSet(count, count + 1)) {
+				return true;
+			}
+		}
+	}
+
+	public void release() {
+		if (references.decrementAndGet() == 0) {
+			close();
+		}
+	}
+
+	/**
+	 * Called once transport got replaced, closes it after in-flight requests are done.
+	 */
+	public void retire() {
+		release();
+	}
+
+	public boolean isClosed() {
+		return references.get() < 1;
+	}
+
+	private void close() {
+		logger.info("closing transport of outdated plugin settings");
+		if (httpClient instanceof Closeable) {
+			try {
+				((Closeable) httpClient).close();
+			} catch (IOException e) {
+				logger.warn("could not close http client", e);
+			}
+		}
+		if (hedging != null) {
+			hedging.executor().shutdown();
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package com.github.cnenning.artiscm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.thoughtworks.go.plugin.api.logging.Logger;
+
+/**
+ * Embedded HTTP listener for Artifactory webhooks. Each artifact event (deployed, deleted, moved, copied)
+ * is passed to the listener with repository key and path, so caches of affected folders can be dropped.
+ * <pre>
+ * POST /  {"domain": "artifact", "event_type": "deployed", "data": {"repo_key": "libs", "path": "app/1.0.1/app.jar", ...}}
+ * </pre>
+ * If a secret is configured, requests have to send it in header {@value #SECRET_HEADER}.
+ * Listens on loopback only unless another bind address is given.
+ */
+public class WebhookReceiver implements Closeable {
+
+	public static final String SECRET_HEADER = "X-JFrog-Event-Auth";
+	public static final String DEFAULT_BIND_ADDRESS = "127.0.0.1";
+	private static final int MAX_BODY_BYTES = 1024 * 1024;
+
+	/**
+	 * Gets paths changed by artifact events.
+	 */
+	public static interface Listener {
+		/**
+		 * @param path of artifact or folder within repository, without leading slash
+		 */
+		void changed(String repoKey, String path);
+	}
+
+	protected Logger logger = Logger.getLoggerFor(getClass());
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final byte[] secret;
+	private final Listener listener;
+
+	private final AtomicLong events = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	/**
+	 * Starts listening on loopback right away.
+	 * @param port 0 picks a free port
+	 * @param secret null or empty accepts requests without secret
+	 */
+	public WebhookReceiver(int port, String secret, Listener listener) throws IOException {
+		this(DEFAULT_BIND_ADDRESS, port, secret, listener);
+	}
+
+	/**
+	 * Starts listening right away.
+	 * @param bindAddress host name or IP address to listen on, 0.0.0.0 for all interfaces
+	 * @param port 0 picks a free port
+	 * @param secret null or empty accepts requests without secret
+	 */
+	public WebhookReceiver(String bindAddress, int port, String secret, Listener listener) throws IOException {
+		this.secret = secret != null && !secret.isEmpty() ? secret.getBytes("UTF-8") : null;
+		this.listener = listener;
+		this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "artifactory-plugin-webhook");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		server.setExecutor(executor);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					respond(exchange, receive(exchange));
+				} catch (Exception e) {
+					logger.warn("could not handle webhook request", e);
+					respond(exchange, 500);
+				}
+			}
+		});
+		server.start();
+	}
+
+	public int port() {
+		return server.getAddress().getPort();
+	}
+
+	public InetSocketAddress address() {
+		return server.getAddress();
+	}
+
+	/**
+	 * @return artifact events passed to listener
+	 */
+	public long events() {
+		return events.get();
+	}
+
+	/**
+	 * @return requests rejected for method, secret or payload
+	 */
+	public long rejected() {
+		return rejected.get();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return status code
+	 */
+	private int receive(HttpExchange exchange) throws IOException {
+		if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+			rejected.incrementAndGet();
+			return 405;
+		}
+		if (secret != null) {
+			String sent = exchange.getRequestHeaders().getFirst(SECRET_HEADER);
+			if (sent == null || !MessageDigest.isEqual(secret, sent.getBytes("UTF-8"))) {
+				rejected.incrementAndGet();
+				logger.warn("rejected webhook request without valid secret from: " + exchange.getRemoteAddress());
+				return 401;
+			}
+		}
+		Map payload;
+		// request body is closed with the exchange, after respond() read the rest of it
+		BoundedInputStream body = new BoundedInputStream(exchange.getRequestBody(), MAX_BODY_BYTES);
+		body.setPropagateClose(false);
+		try {
+			payload = ApiJson.MAP_READER.readValue(IOUtils.toByteArray(body));
+		} catch (IOException e) {
+			rejected.incrementAndGet();
+			logger.warn("could not read webhook payload: " + e);
+			return 400;
+		}
+		for (String[] repoPath : changedPaths(payload)) {
+			events.incrementAndGet();
+			logger.debug("webhook event for: " + repoPath[0] + "/" + repoPath[1]);
+			listener.changed(repoPath[0], repoPath[1]);
+		}
+		return 200;
+	}
+
+	private static void respond(HttpExchange exchange, int status) throws IOException {
+		// closing an exchange with unread body resets the connection instead of answering
+		InputStream body = exchange.getRequestBody();
+		if (IOUtils.skip(body, MAX_BODY_BYTES) == MAX_BODY_BYTES && body.read() != -1) {
+			exchange.getResponseHeaders().set("Connection", "close");
+		}
+		exchange.sendResponseHeaders(status, -1);
+		exchange.close();
+	}
+
+	/**
+	 * @return repository key and path of changed artifacts, source and target of moves and copies
+	 */
+	static List<String[]> changedPaths(Map payload) {
+		List<String[]> paths = new ArrayList<>();
+		Object domain = payload != null ? payload.get("domain") : null;
+		if (domain != null && !"artifact".equals(domain)) {
+			return paths;
+		}
+		Object data = payload != null ? payload.get("data") : null;
+		if (data instanceof Map) {
+			Map dataMap = (Map) data;
+			addPath(paths, dataMap.get("repo_key"), dataMap.get("path"));
+			addPath(paths, dataMap.get("target_repo_key"), dataMap.get("target_path"));
+		}
+		return paths;
+	}
+
+	private static void addPath(List<String[]> paths, Object repoKey, Object path) {
+		if (repoKey instanceof String && path instanceof String) {
+			String pathStr = (String) path;
+			while (pathStr.startsWith("/")) {
+				pathStr = pathStr.substring(1);
+			}
+			paths.add(new String[] {(String) repoKey, pathStr});
+		}
+	}
+
+	/**
+	 * Whether a change of given artifact or folder may change the listing at url: the listing is of a folder
+	 * containing the artifact, or of a folder below a changed folder. The context path of Artifactory
+	 * in url is not known, urls are matched at each occurrence of the repository key.
+	 */
+	public static boolean affects(String url, String repoKey, String path) {
+		String urlPath;
+		try {
+			urlPath = URI.create(url).getPath();
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		if (urlPath == null) {
+			return false;
+		}
+		if (!urlPath.endsWith("/")) {
+			urlPath += "/";
+		}
+		String changed = "/" + repoKey + "/" + path;
+		String repoPrefix = "/" + repoKey + "/";
+		int index = urlPath.indexOf(repoPrefix);
+		while (index >= 0) {
+			String folder = urlPath.substring(index);
+			if (changed.startsWith(folder) || folder.startsWith(changed.endsWith("/") ? changed : changed + "/")) {
+				return true;
+			}
+			index = urlPath.indexOf(repoPrefix, index + 1);
+		}
+		return false;
+	}
+}
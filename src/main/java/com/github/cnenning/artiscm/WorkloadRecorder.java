@@ -0,0 +1,136 @@
+package com.github.cnenning.artiscm;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.thoughtworks.go.plugin.api.logging.Logger;
+
+/**
+ * Records go requests and raw listing responses to a gzipped file with one json entry per line,
+ * so real polling can be replayed offline. Passwords in request bodies are redacted, authorization
+ * headers are not recorded. Each entry is flushed, a recording stays readable while go-server runs.
+ */
+public class WorkloadRecorder implements Closeable {
+
+	public static final String TYPE_REQUEST = "request";
+	public static final String TYPE_LISTING = "listing";
+
+	private static final ObjectWriter ENTRY_WRITER = ApiJson.MAPPER.writerFor(Entry.class);
+	private static final ObjectReader ENTRY_READER = ApiJson.MAPPER.readerFor(Entry.class);
+
+	protected Logger logger = Logger.getLoggerFor(getClass());
+
+	private final File file;
+	private final Writer writer;
+	private final long startMillis = System.currentTimeMillis();
+
+	public WorkloadRecorder(File file) throws IOException {
+		this.file = file;
+		this.writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file), true), "UTF-8"));
+	}
+
+	public File file() {
+		return file;
+	}
+
+	public void request(String name, String body) {
+		Entry entry = new Entry();
+		entry.type = TYPE_REQUEST;
+		entry.name = name;
+		entry.body = body != null ? DiagnosticLog.redact(body) : null;
+		write(entry);
+	}
+
+	/**
+	 * @param charset of response, null if not sent by server
+	 */
+	public void listing(String url, int status, String charset, String body) {
+		Entry entry = new Entry();
+		entry.type = TYPE_LISTING;
+		entry.url = url;
+		entry.status = status;
+		entry.charset = charset;
+		entry.body = body;
+		write(entry);
+	}
+
+	private void write(Entry entry) {
+		entry.millis = System.currentTimeMillis() - startMillis;
+		try {
+			String line = ENTRY_WRITER.writeValueAsString(entry);
+			synchronized (writer) {
+				writer.write(line);
+				writer.write('\n');
+				writer.flush();
+			}
+		} catch (IOException e) {
+			// recording must not fail requests
+			logger.warn("could not record to " + file + ": " + e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (writer) {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Reads recording, also one that is still written to.
+	 */
+	public static List<Entry> read(File file) throws IOException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		try (InputStream input = new GZIPInputStream(new FileInputStream(file))) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) > 0) {
+				content.write(buffer, 0, read);
+			}
+		} catch (EOFException e) {
+			// gzip trailer is only written on close, keep what has been flushed
+		}
+		List<Entry> entries = new ArrayList<>();
+		BufferedReader reader = new BufferedReader(new StringReader(content.toString("UTF-8")));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			// last line may be cut off
+			if (!line.isEmpty() && line.endsWith("}")) {
+				entries.add(ENTRY_READER.<Entry>readValue(line));
+			}
+		}
+		return entries;
+	}
+
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public static class Entry {
+		public String type;
+		/** since start of recording */
+		public long millis;
+		/** go request name */
+		public String name;
+		public String url;
+		public Integer status;
+		public String charset;
+		/** request body or listing html */
+		public String body;
+	}
+}
@@ -0,0 +1,65 @@
+package com.github.cnenning.artiscm;
+
+import java.io.IOException;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.cnenning.artiscm.ArtifactoryClient.RequestType;
+
+public class AdaptiveTimeoutsTests {
+
+	@Test
+	public void ceilingWithoutSamples() {
+		AdaptiveTimeouts timeouts = new AdaptiveTimeouts(100, 5000);
+		Assert.assertEquals(5000, timeouts.socketTimeout("localhost", RequestType.LISTING));
+	}
+
+	@Test
+	public void derivedFromLatency() {
+		AdaptiveTimeouts timeouts = new AdaptiveTimeouts(100, 5000);
+		record(timeouts, RequestType.LISTING, 200);
+		Assert.assertEquals(200 * AdaptiveTimeouts.MULTIPLIER, timeouts.socketTimeout("localhost", RequestType.LISTING));
+		// other type and host are tracked separately
+		Assert.assertEquals(5000, timeouts.socketTimeout("localhost", RequestType.DOWNLOAD));
+		Assert.assertEquals(5000, timeouts.socketTimeout("otherhost", RequestType.LISTING));
+	}
+
+	@Test
+	public void boundedByFloorAndCeiling() {
+		AdaptiveTimeouts timeouts = new AdaptiveTimeouts(100, 5000);
+		record(timeouts, RequestType.LISTING, 1);
+		record(timeouts, RequestType.DOWNLOAD, 10000);
+		Assert.assertEquals(100, timeouts.socketTimeout("localhost", RequestType.LISTING));
+		Assert.assertEquals(5000, timeouts.socketTimeout("localhost", RequestType.DOWNLOAD));
+	}
+
+	@Test
+	public void onlyListingsAdapted() throws Exception {
+		AdaptiveTimeouts timeouts = new AdaptiveTimeouts(100, 5000);
+		ArtifactoryClient client = new ArtifactoryClient(null, null, null, timeouts);
+		HttpClient httpClient = HttpClientBuilder.create().build();
+		// nothing listens on port 1, config is set before sending
+		HttpGet listing = new HttpGet("http://localhost:1/app-name/");
+		HttpGet download = new HttpGet("http://localhost:1/app-name/1.0/app.jar");
+		for (HttpGet get : new HttpGet[] {listing, download}) {
+			try {
+				client.execute(get, httpClient, get == listing ? RequestType.LISTING : RequestType.DOWNLOAD, null);
+				Assert.fail("expected connection error");
+			} catch (IOException e) {
+				// expected
+			}
+		}
+		Assert.assertEquals(5000, listing.getConfig().getSocketTimeout());
+		Assert.assertNull(download.getConfig());
+	}
+
+	private void record(AdaptiveTimeouts timeouts, RequestType type, long millis) {
+		for (int i = 0; i < AdaptiveTimeouts.MIN_SAMPLES; i++) {
+			timeouts.record("localhost", type, millis);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com.github.cnenning.artiscm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdmissionControlTests {
+
+	private static final String HOST = "localhost";
+
+	@Test
+	public void concurrencyCapped() throws Exception {
+		final AdmissionControl admission = new AdmissionControl(2, 0);
+		final AtomicInteger inFlight = new AtomicInteger();
+		final AtomicInteger maxInFlight = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			final String material = "material-" + (i % 3);
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						admission.acquire(HOST, material);
+						try {
+							int current = inFlight.incrementAndGet();
+							synchronized (maxInFlight) {
+								maxInFlight.set(Math.max(maxInFlight.get(), current));
+							}
+							Thread.sleep(20);
+							inFlight.decrementAndGet();
+						} finally {
+							admission.release(HOST);
+						}
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertEquals(2, maxInFlight.get());
+		Assert.assertEquals(0, admission.queued(HOST));
+	}
+
+	@Test
+	public void roundRobinPerMaterial() throws Exception {
+		final AdmissionControl admission = new AdmissionControl(1, 0);
+		admission.acquire(HOST, "blocker");
+
+		final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+		List<Thread> threads = new ArrayList<>();
+		// material a queues several requests before b queues its single one
+		threads.addAll(startWaiters(admission, "a", 3, order));
+		threads.addAll(startWaiters(admission, "b", 1, order));
+
+		admission.release(HOST);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertEquals(Arrays.asList("a", "b", "a", "a"), order);
+	}
+
+	@Test
+	public void rateLimited() throws Exception {
+		AdmissionControl admission = new AdmissionControl(0, 20);
+		long startTime = System.nanoTime();
+		for (int i = 0; i < 21; i++) {
+			admission.acquire(HOST, "material");
+			admission.release(HOST);
+		}
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+		// burst of 20, 21st has to wait for a new token
+		Assert.assertTrue("took " + millis + " ms", millis >= 40);
+	}
+
+	private List<Thread> startWaiters(final AdmissionControl admission, final String material, int count, final List<String> order) throws InterruptedException {
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			int queued = admission.queued(HOST);
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						admission.acquire(HOST, material);
+						order.add(material);
+						admission.release(HOST);
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+			// keep queueing order deterministic
+			for (int j = 0; j < 500 && admission.queued(HOST) <= queued; j++) {
+				Thread.sleep(2);
+			}
+		}
+		return threads;
+	}
+}
@@ -1,11 +1,16 @@
 package com.github.cnenning.artiscm;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.ProtocolVersion;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.message.BasicStatusLine;
 import org.junit.Assert;
@@ -104,6 +109,14 @@ public class ArtifactoryClientTests {
 		Assert.assertEquals(0, date.getTime());
 	}
 
+	@Test
+	public void sizeInText() {
+		Assert.assertEquals(1234, new ArtifactoryClient().sizeInText("16-Nov-2016 01:40    1234 bytes "));
+		Assert.assertEquals(-1, new ArtifactoryClient().sizeInText("16-Nov-2016 01:40 4.88 MB"));
+		Assert.assertEquals(-1, new ArtifactoryClient().sizeInText("16-Nov-2016 01:40    -"));
+		Assert.assertEquals(-1, new ArtifactoryClient().sizeInText(null));
+	}
+
 	@Test
 	public void addBasicAuth() {
 		HttpGet method = new HttpGet();
@@ -112,4 +125,29 @@ public class ArtifactoryClientTests {
 		Header authHeader = method.getFirstHeader("Authorization");
 		Assert.assertEquals("Basic dXNlcm5hbWU6cGFzc3dvcmQ=", authHeader.getValue());
 	}
+
+	@Test
+	public void httpEventOfFailedRequest() throws Exception {
+		final List<String> finished = new ArrayList<>();
+		ArtifactoryClient client = new ArtifactoryClient();
+		client.events = new ClientEvents() {
+			@Override
+			public Object httpStarted() {
+				return this;
+			}
+
+			@Override
+			public void httpFinished(Object token, String urlTemplate, String type, int status, long bytes, String exception) {
+				finished.add(type + " " + status + " " + exception);
+			}
+		};
+		try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+			// nothing listens on port 1
+			client.checkSubDirs("http://localhost:1/app-name/", null, httpClient, null);
+			Assert.fail("expected connection error");
+		} catch (IOException e) {
+			Assert.assertEquals(1, finished.size());
+			Assert.assertEquals("LISTING -1 " + e.getClass().getName(), finished.get(0));
+		}
+	}
 }
@@ -1,12 +1,29 @@
 package com.github.cnenning.artiscm;
 
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.thoughtworks.go.plugin.api.GoApplicationAccessor;
+import com.thoughtworks.go.plugin.api.request.DefaultGoPluginApiRequest;
+import com.thoughtworks.go.plugin.api.request.GoApiRequest;
+import com.thoughtworks.go.plugin.api.request.GoPluginApiRequest;
+import com.thoughtworks.go.plugin.api.response.DefaultGoApiResponse;
+import com.thoughtworks.go.plugin.api.response.GoApiResponse;
+import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
+
 public class ArtifactoryPluginTests {
 
 	@Test
@@ -20,4 +37,121 @@ public class ArtifactoryPluginTests {
 		System.out.println("got date: " + date);
 		Assert.assertTrue(date.getTime() > 0);
 	}
+
+	@Test
+	public void formatTimestampConcurrently() throws Exception {
+		final AbstractArtifactoryPlugin plugin = new ArtifactoryScmPlugin();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Void>> futures = new ArrayList<>();
+		try {
+			for (int i = 0; i < 8; i++) {
+				final long offset = i * 86400000L * 367;
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						SimpleDateFormat expectedFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+						for (int j = 0; j < 20000; j++) {
+							Date date = new Date(offset + j * 60001L);
+							Assert.assertEquals(expectedFormat.format(date), plugin.formatTimestamp(date));
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void staticResponses() throws Exception {
+		ArtifactoryScmPlugin plugin = new ArtifactoryScmPlugin();
+		GoPluginApiRequest request = new DefaultGoPluginApiRequest("scm", "1.0", ArtifactoryScmPlugin.REQUEST_SCM_VIEW);
+		GoPluginApiResponse first = plugin.handle(request);
+		GoPluginApiResponse second = plugin.handle(request);
+		Assert.assertEquals(200, first.responseCode());
+		Assert.assertTrue(first.responseBody().contains("\"template\":"));
+		Assert.assertNotSame(first, second);
+		Assert.assertSame(first.responseBody(), second.responseBody());
+	}
+
+	@Test
+	public void revisionsWriter() throws Exception {
+		ApiJson.RevisionsWriter writer = new ApiJson.RevisionsWriter();
+		Map<String, String> data = Collections.singletonMap(FileManifest.DATA_KEY, "12 a.jar\n-1 b \"quoted\".txt");
+		writer.write("1.0/", "2017-01-26T10:50:00.000Z", "first", Arrays.asList("a.jar", "b \"quoted\".txt"), data);
+		writer.write("1.1/", "2017-01-27T10:50:00.000Z", null, Collections.<String>emptyList());
+		String streamed = writer.finish();
+
+		ApiJson.RevisionJson first = new ApiJson.RevisionJson();
+		first.revision = "1.0/";
+		first.timestamp = "2017-01-26T10:50:00.000Z";
+		first.revisionComment = "first";
+		first.modifiedFiles = Arrays.asList(new ApiJson.ModifiedFile("a.jar"), new ApiJson.ModifiedFile("b \"quoted\".txt"));
+		first.data = data;
+		ApiJson.RevisionJson second = new ApiJson.RevisionJson();
+		second.revision = "1.1/";
+		second.timestamp = "2017-01-27T10:50:00.000Z";
+		List<ApiJson.RevisionJson> revisions = Arrays.asList(first, second);
+		String tree = ApiJson.WRITER.writeValueAsString(new ApiJson.LatestRevisions(revisions));
+
+		Assert.assertEquals(tree, streamed);
+	}
+
+	@Test
+	public void reloadSettings() {
+		final String[] json = {"{\"connectTimeout\": \"1000\", \"settingsReloadSeconds\": \"0\"}"};
+		AbstractArtifactoryPlugin plugin = new ArtifactoryScmPlugin();
+		plugin.initializeGoApplicationAccessor(new GoApplicationAccessor() {
+			@Override
+			public GoApiResponse submit(GoApiRequest request) {
+				DefaultGoApiResponse response = new DefaultGoApiResponse(200);
+				response.setResponseBody(json[0]);
+				return response;
+			}
+		});
+		Transport first = plugin.transport();
+
+		Assert.assertFalse(plugin.reloadSettings());
+		Assert.assertSame(first, plugin.transport());
+
+		// applied in place
+		json[0] = "{\"connectTimeout\": \"1000\", \"settingsReloadSeconds\": \"0\", \"traceSlowMillis\": \"10\"}";
+		Assert.assertFalse(plugin.reloadSettings());
+		Assert.assertSame(first, plugin.transport());
+		Assert.assertEquals(10, plugin.metrics().tracing().getSlowMillis());
+
+		// request in flight keeps old transport
+		Assert.assertTrue(first.lease());
+		json[0] = "{\"connectTimeout\": \"2000\", \"settingsReloadSeconds\": \"0\"}";
+		Assert.assertTrue(plugin.reloadSettings());
+		Transport second = plugin.transport();
+		Assert.assertNotSame(first, second);
+		Assert.assertFalse(first.isClosed());
+
+		first.release();
+		Assert.assertTrue(first.isClosed());
+		Assert.assertFalse(first.lease());
+		Assert.assertFalse(second.isClosed());
+	}
+
+	@Test
+	public void materialKey() {
+		AbstractArtifactoryPlugin plugin = new ArtifactoryPkgPlugin();
+		String url = "http://localhost/repo/app/";
+		String files = plugin.materialKey(url, "app.*", false, new UserPw(null, null));
+		Assert.assertEquals(url + " app.*", files);
+
+		String directories = plugin.materialKey(url, "app.*", true, new UserPw(null, null));
+		Assert.assertNotEquals(files, directories);
+
+		String alice = plugin.materialKey(url, "app.*", false, new UserPw("alice", "pa55"));
+		Assert.assertNotEquals(files, alice);
+		Assert.assertFalse(alice, alice.contains("pa55"));
+		Assert.assertEquals(alice, plugin.materialKey(url, "app.*", false, new UserPw("alice", "pa55")));
+		Assert.assertNotEquals(alice, plugin.materialKey(url, "app.*", false, new UserPw("alice", "other")));
+	}
 }
@@ -0,0 +1,156 @@
+package com.github.cnenning.artiscm;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.cnenning.artiscm.ArtifactoryClient.Revision;
+
+public class BackgroundRefreshTests {
+
+	private ScheduledExecutorService scheduler;
+
+	@Before
+	public void createScheduler() {
+		scheduler = Executors.newSingleThreadScheduledExecutor();
+	}
+
+	@After
+	public void shutdownScheduler() {
+		scheduler.shutdownNow();
+	}
+
+	private static Revision revision(String name) {
+		Revision revision = new Revision();
+		revision.revision = name;
+		return revision;
+	}
+
+	private static class CountingFetcher implements BackgroundRefresh.Fetcher {
+		final AtomicInteger fetches = new AtomicInteger();
+
+		@Override
+		public Revision fetch() {
+			return revision("1.0." + fetches.incrementAndGet());
+		}
+	}
+
+	@Test
+	public void disabledByDefault() {
+		BackgroundRefresh refresh = new BackgroundRefresh();
+		refresh.polled("material", "http://example.com/repo/app/", new CountingFetcher());
+		refresh.update("material", revision("1.0.0"));
+		Assert.assertNull(refresh.cached("material"));
+		Assert.assertEquals(0, refresh.materials());
+	}
+
+	@Test
+	public void servesFreshRevisions() throws Exception {
+		BackgroundRefresh refresh = new BackgroundRefresh();
+		refresh.configure(1, 200, scheduler);
+		Assert.assertNull(refresh.cached("material"));
+
+		refresh.polled("material", "http://example.com/repo/app/", new CountingFetcher());
+		refresh.update("material", revision("1.0.0"));
+		Assert.assertEquals("1.0.0", refresh.cached("material").revision);
+		Assert.assertEquals(1, refresh.hits());
+		Assert.assertEquals(1, refresh.misses());
+
+		Thread.sleep(300);
+		Assert.assertNull("older than max age", refresh.cached("material"));
+	}
+
+	@Test
+	public void refreshesAheadOfNextPoll() throws Exception {
+		BackgroundRefresh refresh = new BackgroundRefresh();
+		refresh.configure(1, 10000, scheduler);
+		CountingFetcher fetcher = new CountingFetcher();
+
+		// polls every 400 ms, refresh is due 200 to 300 ms after the second one
+		refresh.polled("material", "http://example.com/repo/app/", fetcher);
+		Thread.sleep(400);
+		refresh.polled("material", "http://example.com/repo/app/", fetcher);
+		Assert.assertEquals(0, fetcher.fetches.get());
+
+		Thread.sleep(500);
+		Assert.assertEquals(1, fetcher.fetches.get());
+		Assert.assertEquals(1, refresh.refreshes());
+		Assert.assertEquals("1.0.1", refresh.cached("material").revision);
+	}
+
+	@Test
+	public void concurrencyIsCapped() throws Exception {
+		BackgroundRefresh refresh = new BackgroundRefresh();
+		refresh.configure(2, 10000, scheduler);
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(6);
+		BackgroundRefresh.Fetcher fetcher = new BackgroundRefresh.Fetcher() {
+			@Override
+			public Revision fetch() throws Exception {
+				int current = running.incrementAndGet();
+				synchronized (maxRunning) {
+					maxRunning.set(Math.max(maxRunning.get(), current));
+				}
+				Thread.sleep(50);
+				running.decrementAndGet();
+				done.countDown();
+				return revision("1.0.0");
+			}
+		};
+		for (int i = 0; i < 6; i++) {
+			refresh.polled("material-" + i, "http://example.com/repo/app-" + i + "/", fetcher);
+			refresh.submit("material-" + i);
+		}
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(2, maxRunning.get());
+	}
+
+	@Test
+	public void failedRefreshKeepsRevision() throws Exception {
+		BackgroundRefresh refresh = new BackgroundRefresh();
+		refresh.configure(1, 10000, scheduler);
+		final CountDownLatch fetched = new CountDownLatch(1);
+		refresh.polled("material", "http://example.com/repo/app/", new BackgroundRefresh.Fetcher() {
+			@Override
+			public Revision fetch() throws Exception {
+				fetched.countDown();
+				throw new IllegalStateException("server down");
+			}
+		});
+		refresh.update("material", revision("1.0.0"));
+		refresh.submit("material");
+		Assert.assertTrue(fetched.await(5, TimeUnit.SECONDS));
+		Thread.sleep(50);
+		Assert.assertEquals(1, refresh.failures());
+		Assert.assertEquals("1.0.0", refresh.cached("material").revision);
+	}
+
+	@Test
+	public void invalidateRefreshesRightAway() throws Exception {
+		BackgroundRefresh refresh = new BackgroundRefresh();
+		refresh.configure(1, 10000, scheduler);
+		final CountDownLatch fetched = new CountDownLatch(1);
+		refresh.polled("material", "http://example.com/repo/app/", new BackgroundRefresh.Fetcher() {
+			@Override
+			public Revision fetch() {
+				fetched.countDown();
+				return revision("1.0.1");
+			}
+		});
+		refresh.update("material", revision("1.0.0"));
+		Assert.assertEquals("http://example.com/repo/app/", refresh.materialUrls().get("material"));
+
+		refresh.invalidate("material");
+		Assert.assertTrue(fetched.await(5, TimeUnit.SECONDS));
+		Thread.sleep(50);
+		Assert.assertEquals("1.0.1", refresh.cached("material").revision);
+	}
+}
@@ -0,0 +1,90 @@
+package com.github.cnenning.artiscm;
+
+import java.io.IOException;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.cnenning.artiscm.ArtifactoryClient.Revision;
+
+public class CircuitBreakerTests {
+
+	@Test
+	public void opensAfterThreshold() {
+		CircuitBreaker breaker = new CircuitBreaker(2, 60000, 1);
+		breaker.recordFailure();
+		Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+		Assert.assertTrue(breaker.allowRequest());
+		breaker.recordFailure();
+		Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+		Assert.assertFalse(breaker.allowRequest());
+		Assert.assertTrue(breaker.retryAfter() > 0);
+	}
+
+	@Test
+	public void successResetsFailures() {
+		CircuitBreaker breaker = new CircuitBreaker(2, 60000, 1);
+		breaker.recordFailure();
+		breaker.recordSuccess();
+		breaker.recordFailure();
+		Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+	}
+
+	@Test
+	public void halfOpenLimitsProbes() {
+		CircuitBreaker breaker = new CircuitBreaker(1, 0, 1);
+		breaker.recordFailure();
+		Assert.assertTrue(breaker.allowRequest());
+		Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+		Assert.assertFalse(breaker.allowRequest());
+		breaker.recordSuccess();
+		Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+		Assert.assertTrue(breaker.allowRequest());
+	}
+
+	@Test
+	public void halfOpenFailureReopens() {
+		CircuitBreaker breaker = new CircuitBreaker(1, 0, 1);
+		breaker.recordFailure();
+		Assert.assertTrue(breaker.allowRequest());
+		breaker.recordFailure();
+		Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+	}
+
+	@Test
+	public void lastGoodRevisionsBounded() {
+		LastGoodRevisions revisions = new LastGoodRevisions(2);
+		revisions.remember("a", new Revision());
+		revisions.remember("b", new Revision());
+		Assert.assertNotNull(revisions.get("a"));
+		revisions.remember("c", new Revision());
+		Assert.assertEquals(2, revisions.size());
+		Assert.assertNull("least recently used", revisions.get("b"));
+		Assert.assertNotNull(revisions.get("a"));
+	}
+
+	@Test
+	public void clientFailsFast() throws Exception {
+		CircuitBreakers breakers = new CircuitBreakers(1, 60000);
+		ArtifactoryClient client = new ArtifactoryClient(null, breakers, null, null);
+		HttpClient httpClient = HttpClientBuilder.create().build();
+		// nothing listens on port 1
+		String url = "http://localhost:1/app-name/";
+		try {
+			client.checkSubDirs(url, null, httpClient, null);
+			Assert.fail("expected connection error");
+		} catch (CircuitOpenException e) {
+			Assert.fail("circuit must not be open yet");
+		} catch (IOException e) {
+			// expected
+		}
+		try {
+			client.checkSubDirs(url, null, httpClient, null);
+			Assert.fail("expected open circuit");
+		} catch (CircuitOpenException e) {
+			Assert.assertTrue(e.getMessage().contains("'localhost'"));
+		}
+	}
+}
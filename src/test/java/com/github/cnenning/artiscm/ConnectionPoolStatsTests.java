@@ -0,0 +1,47 @@
+package com.github.cnenning.artiscm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConnectionPoolStatsTests {
+
+	@Test
+	public void leases() throws Exception {
+		ConnectionPoolStats stats = new ConnectionPoolStats();
+		Assert.assertEquals(0, stats.getLeased());
+
+		PoolingHttpClientConnectionManager manager = stats.newConnectionManager();
+		manager.setDefaultMaxPerRoute(1);
+		HttpRoute route = new HttpRoute(new HttpHost("localhost", 8080));
+		try {
+			HttpClientConnection connection = manager.requestConnection(route, null).get(1, TimeUnit.SECONDS);
+			Assert.assertEquals(1, stats.getLeased());
+			Assert.assertEquals(1, stats.getLeaseCount());
+			Assert.assertEquals(1, stats.getConnectionsCreated());
+			Assert.assertEquals(1, stats.getRoutes().length);
+			Assert.assertTrue(stats.getRoutes()[0], stats.getRoutes()[0].contains("leased: 1"));
+
+			try {
+				manager.requestConnection(route, null).get(10, TimeUnit.MILLISECONDS);
+				Assert.fail("pool of one connection should be exhausted");
+			} catch (ConnectionPoolTimeoutException e) {
+				// expected
+			}
+			Assert.assertEquals(1, stats.getLeaseTimeouts());
+			// pool timeouts may fire a little early, only the wait being recorded matters
+			Assert.assertTrue(stats.getLeaseWaitMaxMillis() > 0);
+
+			manager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+			Assert.assertEquals(0, stats.getLeased());
+		} finally {
+			manager.shutdown();
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.github.cnenning.artiscm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.thoughtworks.go.plugin.api.logging.Logger;
+
+public class DiagnosticLogTests {
+
+	@Test
+	public void redactPasswords() {
+		String json = "{\"scm-configuration\": {\"username\": {\"value\": \"user\"}, \"password\": {\"value\": \"s3\\\"cr3t\"}},"
+				+ " \"proxyPassword\":\"s3cr3t\", \"webhookSecret\": {\"value\": \"tok3n\"}}";
+		String redacted = DiagnosticLog.redact(json);
+		Assert.assertFalse(redacted, redacted.contains("cr3t"));
+		Assert.assertFalse(redacted, redacted.contains("tok3n"));
+		Assert.assertTrue(redacted, redacted.contains("\"password\": {\"value\": \"****\"}"));
+		Assert.assertTrue(redacted, redacted.contains("\"proxyPassword\":\"****\""));
+		Assert.assertTrue(redacted, redacted.contains("\"webhookSecret\": {\"value\": \"****\"}"));
+		Assert.assertTrue(redacted, redacted.contains("\"username\": {\"value\": \"user\"}"));
+	}
+
+	@Test
+	public void truncateBody() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < DiagnosticLog.MAX_BODY_CHARS + 10; i++) {
+			sb.append('x');
+		}
+		String body = DiagnosticLog.body(sb).toString();
+		Assert.assertTrue(body, body.endsWith("... (" + (DiagnosticLog.MAX_BODY_CHARS + 10) + " chars)"));
+		Assert.assertEquals("short", DiagnosticLog.body("short").toString());
+	}
+
+	@Test
+	public void debugBodyOnlyIfEnabled() {
+		boolean before = DiagnosticLog.isDumpBodies();
+		try {
+			DiagnosticLog.setDumpBodies(false);
+			Assert.assertEquals(DiagnosticLog.BODY_HIDDEN, DiagnosticLog.debugBody("short").toString());
+			DiagnosticLog.setDumpBodies(true);
+			Assert.assertEquals("short", DiagnosticLog.debugBody("short").toString());
+		} finally {
+			DiagnosticLog.setDumpBodies(before);
+		}
+	}
+
+	@Test
+	public void debugFollowsLoggerWithoutSetting() {
+		DiagnosticLog.setDumpBodies(false);
+		// plugin api compiled against cannot tell, go's logger filters by level then
+		Assert.assertTrue(new DiagnosticLog(Logger.getLoggerFor(getClass())).isDebugEnabled());
+	}
+
+	@Test
+	public void format() {
+		Assert.assertEquals("a 1 b null c {}", DiagnosticLog.format("a {} b {} c {}", 1, null));
+		Assert.assertEquals("no args {}", DiagnosticLog.format("no args {}"));
+	}
+
+	@Test
+	public void warningsRateLimited() {
+		DiagnosticLog log = new DiagnosticLog(Logger.getLoggerFor(getClass()));
+		String key = "test-" + System.nanoTime();
+		Assert.assertTrue(log.warnRateLimited(key, "first {}", 1));
+		Assert.assertFalse(log.warnRateLimited(key, "second {}", 2));
+		Assert.assertTrue(log.warnRateLimited(key + "-other", "other {}", 3));
+	}
+}
@@ -0,0 +1,55 @@
+package com.github.cnenning.artiscm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.cnenning.artiscm.ArtifactoryClient.Revision;
+
+public class FileManifestTests {
+
+	private static Revision file(String name, long size) {
+		Revision file = new Revision();
+		file.revision = name;
+		file.size = size;
+		return file;
+	}
+
+	@Test
+	public void roundTrip() {
+		String manifest = FileManifest.encode(Arrays.asList(file("app.jar", 1024), file("app notes.txt", -1)));
+		Assert.assertEquals("1024 app.jar\n-1 app notes.txt", manifest);
+		List<Revision> files = FileManifest.decode(manifest);
+		Assert.assertEquals(2, files.size());
+		Assert.assertEquals("app.jar", files.get(0).revision);
+		Assert.assertEquals(1024, files.get(0).size);
+		Assert.assertEquals("app notes.txt", files.get(1).revision);
+		Assert.assertEquals(-1, files.get(1).size);
+	}
+
+	@Test
+	public void notEncoded() {
+		Assert.assertNull(FileManifest.encode(null));
+		Assert.assertNull(FileManifest.encode(Collections.<Revision>emptyList()));
+		Assert.assertNull(FileManifest.encode(Arrays.asList(file("app\n.jar", 1))));
+
+		List<Revision> many = new ArrayList<>();
+		for (int i = 0; i < FileManifest.MAX_LENGTH / 10; i++) {
+			many.add(file("app-" + i + ".jar", 1024));
+		}
+		Assert.assertNull("too long", FileManifest.encode(many));
+	}
+
+	@Test
+	public void malformed() {
+		Assert.assertNull(FileManifest.decode(null));
+		Assert.assertNull(FileManifest.decode(""));
+		Assert.assertNull(FileManifest.decode("app.jar"));
+		Assert.assertNull(FileManifest.decode("big app.jar"));
+		Assert.assertNull(FileManifest.decode("12 "));
+	}
+}
@@ -0,0 +1,158 @@
+package com.github.cnenning.artiscm;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HedgingTests {
+
+	private static final String URL = "http://localhost/app-name/";
+
+	@Test
+	public void percentile() {
+		LatencyTracker tracker = new LatencyTracker(100);
+		for (int i = 1; i <= 100; i++) {
+			tracker.record(i);
+		}
+		Assert.assertEquals(50, tracker.percentile(50));
+		Assert.assertEquals(95, tracker.percentile(95));
+		Assert.assertEquals(100, tracker.percentile(100));
+	}
+
+	@Test
+	public void percentileKeepsLatestSamples() {
+		LatencyTracker tracker = new LatencyTracker(2);
+		tracker.record(1000);
+		tracker.record(1);
+		tracker.record(2);
+		Assert.assertEquals(2, tracker.count());
+		Assert.assertEquals(2, tracker.percentile(100));
+	}
+
+	@Test
+	public void noHedgeWithoutSamples() {
+		Hedging hedging = new Hedging(90, 1);
+		hedging.record("localhost", 10);
+		Assert.assertEquals(-1, hedging.hedgeDelay("localhost"));
+		Assert.assertEquals(-1, hedging.hedgeDelay("otherhost"));
+	}
+
+	@Test
+	public void hedgeWinsOverSlowRequest() throws Exception {
+		Hedging hedging = warmHedging(1);
+		final AtomicInteger calls = new AtomicInteger();
+		final CountDownLatch neverAnswered = new CountDownLatch(1);
+		final CountDownLatch primaryAborted = new CountDownLatch(1);
+		ArtifactoryClient client = new ArtifactoryClient(hedging, null, null, null) {
+			@Override
+			protected Listing fetchListing(HttpGet httpget, String url, HttpClient client) throws IOException {
+				if (calls.incrementAndGet() == 1) {
+					try {
+						neverAnswered.await();
+					} catch (InterruptedException e) {
+						primaryAborted.countDown();
+						throw new InterruptedIOException("aborted");
+					}
+					return new Listing(Jsoup.parse("<html>slow</html>"));
+				}
+				return new Listing(Jsoup.parse("<html>fast</html>"));
+			}
+		};
+
+		Document document = client.fetchListingHedged(URL, null, null).document;
+
+		Assert.assertEquals("fast", document.text());
+		Assert.assertEquals(2, calls.get());
+		Assert.assertEquals(1, hedging.availableHedges());
+		Assert.assertTrue(primaryAborted.await(5, TimeUnit.SECONDS));
+		// latency of aborted primary is sampled as well, after its task finished
+		long deadline = System.currentTimeMillis() + 5000;
+		while (hedging.samples("localhost") < Hedging.MIN_SAMPLES + 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+		Assert.assertEquals(Hedging.MIN_SAMPLES + 2, hedging.samples("localhost"));
+	}
+
+	@Test
+	public void hedgeCapRespected() throws Exception {
+		final CountDownLatch hedgeRefused = new CountDownLatch(1);
+		Hedging hedging = new Hedging(50, 1) {
+			@Override
+			public boolean tryAcquireHedge() {
+				boolean acquired = super.tryAcquireHedge();
+				if (!acquired) {
+					hedgeRefused.countDown();
+				}
+				return acquired;
+			}
+		};
+		warm(hedging);
+		Assert.assertTrue(hedging.tryAcquireHedge());
+		final AtomicInteger calls = new AtomicInteger();
+		ArtifactoryClient client = new ArtifactoryClient(hedging, null, null, null) {
+			@Override
+			protected Listing fetchListing(HttpGet httpget, String url, HttpClient client) throws IOException {
+				calls.incrementAndGet();
+				await(hedgeRefused);
+				return new Listing(Jsoup.parse("<html>slow</html>"));
+			}
+		};
+		Document document = client.fetchListingHedged(URL, null, null).document;
+
+		Assert.assertEquals("slow", document.text());
+		Assert.assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void hedgeUsedWhenFirstRequestFails() throws Exception {
+		Hedging hedging = warmHedging(1);
+		final AtomicInteger calls = new AtomicInteger();
+		final CountDownLatch hedgeSent = new CountDownLatch(1);
+		ArtifactoryClient client = new ArtifactoryClient(hedging, null, null, null) {
+			@Override
+			protected Listing fetchListing(HttpGet httpget, String url, HttpClient client) throws IOException {
+				if (calls.incrementAndGet() == 1) {
+					await(hedgeSent);
+					throw new IOException("status code: 502");
+				}
+				hedgeSent.countDown();
+				return new Listing(Jsoup.parse("<html>hedge</html>"));
+			}
+		};
+
+		Document document = client.fetchListingHedged(URL, null, null).document;
+
+		Assert.assertEquals("hedge", document.text());
+	}
+
+	private Hedging warmHedging(int maxOutstanding) {
+		return warm(new Hedging(50, maxOutstanding));
+	}
+
+	private static Hedging warm(Hedging hedging) {
+		for (int i = 0; i < Hedging.MIN_SAMPLES; i++) {
+			hedging.record("localhost", 10);
+		}
+		return hedging;
+	}
+
+	private static void await(CountDownLatch latch) throws IOException {
+		try {
+			if (!latch.await(5, TimeUnit.SECONDS)) {
+				throw new IOException("latch not released");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted");
+		}
+	}
+}
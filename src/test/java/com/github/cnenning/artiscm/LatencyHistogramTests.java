@@ -0,0 +1,35 @@
+package com.github.cnenning.artiscm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTests {
+
+	@Test
+	public void bucketBounds() {
+		for (long value : new long[] {0, 1, 3, 4, 5, 7, 8, 9, 100, 1000, 123456789, Long.MAX_VALUE}) {
+			long upper = LatencyHistogram.upperBound(LatencyHistogram.bucket(value));
+			Assert.assertTrue(value + " <= " + upper, value <= upper);
+			Assert.assertTrue(value + " within 25% of " + upper, upper - value <= value / 4);
+		}
+	}
+
+	@Test
+	public void percentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Assert.assertEquals(-1, histogram.percentile(50));
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000);
+		}
+		Assert.assertEquals(1000, histogram.count());
+		Assert.assertEquals(500500, histogram.mean(), 0.1);
+		Assert.assertEquals(1000000, histogram.max());
+		assertAround(500000, histogram.percentile(50));
+		assertAround(990000, histogram.percentile(99));
+		Assert.assertEquals(1000000, histogram.percentile(100));
+	}
+
+	private void assertAround(long expected, long actual) {
+		Assert.assertTrue(expected + " ~ " + actual, actual >= expected && actual <= expected * 1.25);
+	}
+}
@@ -0,0 +1,176 @@
+package com.github.cnenning.artiscm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.jsoup.nodes.Document;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.cnenning.artiscm.ArtifactoryClient.Revision;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class ListingMemoTests {
+
+	private HttpServer server;
+	private String url;
+	private final Map<String, String> listings = new ConcurrentHashMap<>();
+
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				String html = listings.get(exchange.getRequestURI().getPath());
+				byte[] body = html != null ? html.getBytes("UTF-8") : new byte[0];
+				exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+				exchange.sendResponseHeaders(html != null ? 200 : 404, body.length > 0 ? body.length : -1);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			}
+		});
+		server.start();
+		url = "http://localhost:" + server.getAddress().getPort() + "/repo/app/";
+		listings.put("/repo/app/", listing("1.0.0/", "1.0.1/"));
+		listings.put("/repo/app/1.0.0/", listing("app.jar"));
+		listings.put("/repo/app/1.0.1/", listing("app.jar", "app.pom"));
+		listings.put("/repo/app/1.0.2/", listing("app.jar", "app.pom", "app-sources.jar"));
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	private static String listing(String... names) {
+		StringBuilder html = new StringBuilder("<html><body><pre><a href=\"../\">../</a>\n");
+		int minute = 10;
+		for (String name : names) {
+			html.append("<a href=\"").append(name).append("\">").append(name).append("</a>  16-Nov-2016 01:")
+				.append(minute++).append("    -\n");
+		}
+		return html.append("</pre></body></html>").toString();
+	}
+
+	private static class CountingClient extends ArtifactoryClient {
+		final AtomicInteger parses;
+
+		CountingClient(ListingMemo memo, AtomicInteger parses) {
+			this.parses = parses;
+			withListingMemo(memo);
+		}
+
+		@Override
+		protected Document parse(InputStream stream, String charsetName, String url) throws IOException {
+			parses.incrementAndGet();
+			return super.parse(stream, charsetName, url);
+		}
+	}
+
+	@Test
+	public void unchangedListingIsNotParsedAgain() throws Exception {
+		ListingMemo memo = new ListingMemo();
+		memo.configure(1000);
+		AtomicInteger parses = new AtomicInteger();
+		try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+			Revision first = new CountingClient(memo, parses).latestRevision(url, null, httpClient, null);
+			Assert.assertEquals("1.0.1", first.revision);
+			Assert.assertEquals(2, first.files.size());
+			Assert.assertEquals(2, parses.get());
+
+			Revision second = new CountingClient(memo, parses).latestRevision(url, null, httpClient, null);
+			Assert.assertEquals("1.0.1", second.revision);
+			Assert.assertEquals(2, second.files.size());
+			Assert.assertEquals("no listing parsed", 2, parses.get());
+			Assert.assertEquals(2, memo.hits());
+			Assert.assertNotSame(first, second);
+
+			listings.put("/repo/app/", listing("1.0.0/", "1.0.1/", "1.0.2/"));
+			Revision third = new CountingClient(memo, parses).latestRevision(url, null, httpClient, null);
+			Assert.assertEquals("1.0.2", third.revision);
+			Assert.assertEquals(3, third.files.size());
+			Assert.assertEquals(4, parses.get());
+		}
+	}
+
+	@Test
+	public void hitsCountEntries() throws Exception {
+		ListingMemo memo = new ListingMemo();
+		memo.configure(1000);
+		AtomicInteger parses = new AtomicInteger();
+		try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+			PollStats parsed = new PollStats();
+			new CountingClient(memo, parses).withPoll(parsed).latestRevision(url, null, httpClient, null);
+			PollStats memoized = new PollStats();
+			new CountingClient(memo, parses).withPoll(memoized).latestRevision(url, null, httpClient, null);
+			Assert.assertEquals(2, memo.hits());
+			Assert.assertTrue(parsed.entries() > 0);
+			Assert.assertEquals(parsed.entries(), memoized.entries());
+			Assert.assertEquals(parsed.bytes(), memoized.bytes());
+		}
+	}
+
+	@Test
+	public void resultsAreKeptPerCallback() throws Exception {
+		ListingMemo memo = new ListingMemo();
+		memo.configure(1000);
+		AtomicInteger parses = new AtomicInteger();
+		try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+			ArtifactoryClient client = new CountingClient(memo, parses);
+			Revision latest = client.latestChild(url, "1\\.0\\.(.*)/?", true, httpClient, null);
+			Assert.assertEquals("1.0.1", latest.revision);
+			Assert.assertNotNull(latest.matchingGroups);
+
+			List<Revision> since = client.latestRevisionsSince(url, null, httpClient, null, latest.timestamp);
+			Assert.assertTrue(since.isEmpty());
+			Assert.assertEquals("other callback parses listing", 2, parses.get());
+
+			Revision again = client.latestChild(url, null, true, httpClient, null);
+			Assert.assertEquals("1.0.1", again.revision);
+			Assert.assertNull("remembered result not changed by caller", again.matchingGroups);
+			Assert.assertEquals(2, parses.get());
+		}
+	}
+
+	@Test
+	public void disabledByDefault() throws Exception {
+		ListingMemo memo = new ListingMemo();
+		Assert.assertFalse(memo.isEnabled());
+		AtomicInteger parses = new AtomicInteger();
+		try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+			new CountingClient(memo, parses).latestRevision(url, null, httpClient, null);
+			new CountingClient(memo, parses).latestRevision(url, null, httpClient, null);
+			Assert.assertEquals(4, parses.get());
+			Assert.assertEquals(0, memo.size());
+		}
+	}
+
+	@Test
+	public void dropsLeastRecentlyUsed() {
+		ListingMemo memo = new ListingMemo();
+		memo.configure(2);
+		byte[] hash = {1};
+		memo.remember("a", hash, "files", "a");
+		memo.remember("b", hash, "files", "b");
+		Assert.assertEquals("a", memo.result("a", hash, "files"));
+		memo.remember("c", hash, "files", "c");
+		Assert.assertEquals(2, memo.size());
+		Assert.assertNull(memo.result("b", hash, "files"));
+		Assert.assertEquals("a", memo.result("a", hash, "files"));
+		Assert.assertNull("other hash", memo.result("a", new byte[] {2}, "files"));
+	}
+}
@@ -0,0 +1,87 @@
+package com.github.cnenning.artiscm;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MaterialStatsTests {
+
+	@Test
+	public void lastPoll() {
+		MaterialStats stats = new MaterialStats();
+		Assert.assertNull(stats.lastPoll("url|regex"));
+
+		PollStats poll = new PollStats();
+		poll.httpCall();
+		poll.httpCall();
+		poll.bytes(100);
+		poll.entries(3);
+		stats.finishPoll("url|regex", poll);
+
+		PollStats last = stats.lastPoll("url|regex");
+		Assert.assertSame(poll, last);
+		Assert.assertEquals(2, last.httpCalls());
+		Assert.assertEquals(100, last.bytes());
+		Assert.assertEquals(3, last.entries());
+		Assert.assertTrue(last.durationMillis() >= 0);
+		Assert.assertEquals(1, stats.getMaterialCount());
+	}
+
+	@Test
+	public void servedFromMemoryKeepsLastPoll() {
+		MaterialStats stats = new MaterialStats();
+		stats.servedFromMemory("url|regex");
+		Assert.assertEquals(0, stats.getMaterialCount());
+
+		PollStats background = new PollStats(true);
+		background.httpCall();
+		stats.finishPoll("url|regex", background);
+		stats.servedFromMemory("url|regex");
+		stats.servedFromMemory("url|regex");
+
+		Assert.assertSame(background, stats.lastPoll("url|regex"));
+		Assert.assertEquals(2, stats.servedFromMemoryCount("url|regex"));
+		String line = stats.report(1).get(0);
+		Assert.assertTrue(line, line.contains("(background refresh)"));
+		Assert.assertTrue(line, line.contains("http calls: 1"));
+		Assert.assertTrue(line, line.contains("polls: 2, served from memory: 2"));
+	}
+
+	@Test
+	public void leastRecentlyPolledDropped() {
+		MaterialStats stats = new MaterialStats(2);
+		stats.finishPoll("a", new PollStats());
+		stats.finishPoll("b", new PollStats());
+		stats.servedFromMemory("a");
+		stats.finishPoll("c", new PollStats());
+		Assert.assertEquals(2, stats.getMaterialCount());
+		Assert.assertNull(stats.lastPoll("b"));
+		Assert.assertNotNull(stats.lastPoll("a"));
+	}
+
+	@Test
+	public void reportSlowestFirst() throws Exception {
+		MaterialStats stats = new MaterialStats();
+		stats.finishPoll("fast", new PollStats());
+		PollStats slow = new PollStats();
+		Thread.sleep(20);
+		stats.finishPoll("slow", slow);
+
+		List<String> lines = stats.report(1);
+		Assert.assertEquals(1, lines.size());
+		Assert.assertTrue(lines.get(0), lines.get(0).endsWith("material: slow"));
+
+		File file = File.createTempFile("slow-polls", ".txt");
+		try {
+			stats.writeReport(file);
+			String content = FileUtils.readFileToString(file, "UTF-8");
+			Assert.assertTrue(content, content.contains("material: slow"));
+			Assert.assertTrue(content, content.contains("material: fast"));
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.github.cnenning.artiscm;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class NotFoundCacheTests {
+
+	@Test
+	public void notFoundCache() throws Exception {
+		NotFoundCache cache = new NotFoundCache();
+		cache.configure(60000);
+		Assert.assertFalse(cache.isKnownNotFound("http://localhost/foo/"));
+		cache.remember("http://localhost/foo/");
+		Assert.assertTrue(cache.isKnownNotFound("http://localhost/foo/"));
+		Assert.assertFalse(cache.isKnownNotFound("http://localhost/bar/"));
+		cache.forget("http://localhost/foo/");
+		Assert.assertFalse(cache.isKnownNotFound("http://localhost/foo/"));
+	}
+
+	@Test
+	public void notFoundCacheExpires() throws Exception {
+		NotFoundCache cache = new NotFoundCache();
+		cache.configure(1);
+		cache.remember("http://localhost/foo/");
+		Thread.sleep(10);
+		Assert.assertFalse(cache.isKnownNotFound("http://localhost/foo/"));
+	}
+
+	@Test
+	public void notFoundCacheDisabled() throws Exception {
+		NotFoundCache cache = new NotFoundCache();
+		cache.remember("http://localhost/foo/");
+		cache.configure(0);
+		Assert.assertEquals(0, cache.size());
+		cache.remember("http://localhost/bar/");
+		Assert.assertFalse(cache.isKnownNotFound("http://localhost/bar/"));
+	}
+
+	@Test
+	public void notFoundCacheBounded() throws Exception {
+		NotFoundCache cache = new NotFoundCache();
+		cache.configure(60000);
+		for (int i = 0; i < NotFoundCache.MAX_ENTRIES + 10; i++) {
+			cache.remember("http://localhost/" + i + "/");
+		}
+		Assert.assertEquals(NotFoundCache.MAX_ENTRIES, cache.size());
+	}
+
+	@Test
+	public void clientSkipsKnownNotFoundWithoutCircuitBreakers() throws Exception {
+		final AtomicInteger requests = new AtomicInteger();
+		HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				exchange.sendResponseHeaders(404, -1);
+				exchange.close();
+			}
+		});
+		server.start();
+		NotFoundCache cache = new NotFoundCache();
+		ArtifactoryClient client = new ArtifactoryClient().withNotFoundCache(cache);
+		String url = "http://localhost:" + server.getAddress().getPort() + "/repo/missing/";
+		try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+			for (int i = 0; i < 2; i++) {
+				try {
+					client.checkSubDirs(url, null, httpClient, null);
+					Assert.fail("expected 404");
+				} catch (IOException e) {
+					Assert.assertTrue(e.getMessage().contains("404"));
+				}
+			}
+		} finally {
+			server.stop(0);
+		}
+		Assert.assertEquals(1, requests.get());
+		Assert.assertTrue(cache.isKnownNotFound(url));
+	}
+}
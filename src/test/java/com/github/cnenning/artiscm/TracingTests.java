@@ -0,0 +1,55 @@
+package com.github.cnenning.artiscm;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TracingTests {
+
+	@Test
+	public void notSampled() {
+		Tracing tracing = new Tracing();
+		Assert.assertNull(tracing.begin("latest-revision"));
+		Assert.assertEquals(Trace.NOT_TRACED, Trace.start());
+		Trace.end("http", "url", Trace.NOT_TRACED);
+		Assert.assertNull(Trace.current());
+	}
+
+	@Test
+	public void keepsSlowTraces() throws Exception {
+		Tracing tracing = new Tracing();
+		tracing.configure(100, 10);
+
+		Trace fast = tracing.begin("fast");
+		tracing.finish(fast);
+		Assert.assertNull(Trace.current());
+
+		Trace slow = tracing.begin("slow");
+		Assert.assertSame(slow, Trace.current());
+		long start = Trace.start();
+		Thread.sleep(20);
+		Trace.end("http", "http://localhost/", start);
+		tracing.finish(slow);
+
+		Assert.assertEquals(2, tracing.getTracedCount());
+		List<Trace> traces = tracing.slowTraces();
+		Assert.assertEquals(1, traces.size());
+		Assert.assertSame(slow, traces.get(0));
+		Assert.assertEquals("http", slow.spans().get(0).name());
+		Assert.assertTrue(tracing.getSlowTraces()[0], tracing.getSlowTraces()[0].contains("http://localhost/"));
+	}
+
+	@Test
+	public void ringBufferKeepsMostRecent() {
+		Tracing tracing = new Tracing();
+		tracing.configure(100, 0);
+		for (int i = 0; i < Tracing.CAPACITY + 5; i++) {
+			tracing.finish(tracing.begin("request-" + i));
+		}
+		List<Trace> traces = tracing.slowTraces();
+		Assert.assertEquals(Tracing.CAPACITY, traces.size());
+		Assert.assertEquals("request-" + (Tracing.CAPACITY + 4), traces.get(0).requestName());
+		Assert.assertEquals("request-5", traces.get(traces.size() - 1).requestName());
+	}
+}
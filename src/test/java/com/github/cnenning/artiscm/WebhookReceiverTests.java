@@ -0,0 +1,100 @@
+package com.github.cnenning.artiscm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WebhookReceiverTests {
+
+	private static final String DEPLOYED = "{\"domain\": \"artifact\", \"event_type\": \"deployed\", \"data\": {"
+			+ "\"repo_key\": \"libs\", \"path\": \"app/1.0.1/app.jar\", \"name\": \"app.jar\", \"size\": 1024}}";
+
+	@Test
+	public void affects() {
+		String url = "http://arti.example.com/artifactory/libs/app/";
+		Assert.assertTrue(WebhookReceiver.affects(url, "libs", "app/1.0.1/app.jar"));
+		Assert.assertTrue(WebhookReceiver.affects(url, "libs", "app/1.0.1"));
+		Assert.assertTrue("folder of material deleted", WebhookReceiver.affects(url, "libs", "app"));
+		Assert.assertTrue(WebhookReceiver.affects("http://arti.example.com/artifactory/libs/app", "libs", "app/1.0.1/app.jar"));
+		Assert.assertFalse(WebhookReceiver.affects(url, "libs", "other-app/1.0.1/app.jar"));
+		Assert.assertFalse(WebhookReceiver.affects(url, "libs", "app-2/1.0.1/app.jar"));
+		Assert.assertFalse(WebhookReceiver.affects(url, "releases", "app/1.0.1/app.jar"));
+		// repository key also in context path
+		Assert.assertTrue(WebhookReceiver.affects("http://arti.example.com/libs/libs/app/", "libs", "app/1.0.1/app.jar"));
+	}
+
+	@Test
+	public void receivesEvents() throws Exception {
+		final List<String> changed = Collections.synchronizedList(new ArrayList<String>());
+		try (WebhookReceiver receiver = new WebhookReceiver(0, null, new WebhookReceiver.Listener() {
+					@Override
+					public void changed(String repoKey, String path) {
+						changed.add(repoKey + ":" + path);
+					}
+				});
+				CloseableHttpClient client = HttpClients.createDefault()) {
+			Assert.assertTrue("loopback by default", receiver.address().getAddress().isLoopbackAddress());
+			String url = "http://localhost:" + receiver.port() + "/";
+			Assert.assertEquals(200, post(client, url, DEPLOYED, null));
+			Assert.assertEquals(1, receiver.events());
+			Assert.assertEquals(Collections.singletonList("libs:app/1.0.1/app.jar"), changed);
+
+			String moved = "{\"domain\": \"artifact\", \"event_type\": \"moved\", \"data\": {\"repo_key\": \"libs\", \"path\": \"app/1.0.2\","
+					+ " \"target_repo_key\": \"releases\", \"target_path\": \"app/1.0.2\"}}";
+			Assert.assertEquals(200, post(client, url, moved, null));
+			Assert.assertEquals(3, changed.size());
+			Assert.assertEquals("releases:app/1.0.2", changed.get(2));
+
+			String build = "{\"domain\": \"build\", \"event_type\": \"uploaded\", \"data\": {\"build_name\": \"app\"}}";
+			Assert.assertEquals(200, post(client, url, build, null));
+			Assert.assertEquals(3, changed.size());
+
+			Assert.assertEquals(400, post(client, url, "not json", null));
+			HttpResponse response = client.execute(new HttpGet(url));
+			EntityUtils.consume(response.getEntity());
+			Assert.assertEquals(405, response.getStatusLine().getStatusCode());
+			Assert.assertEquals(2, receiver.rejected());
+		}
+	}
+
+	@Test
+	public void secret() throws Exception {
+		final List<String> changed = Collections.synchronizedList(new ArrayList<String>());
+		try (WebhookReceiver receiver = new WebhookReceiver(0, "s3cret", new WebhookReceiver.Listener() {
+					@Override
+					public void changed(String repoKey, String path) {
+						changed.add(repoKey + ":" + path);
+					}
+				});
+				CloseableHttpClient client = HttpClients.createDefault()) {
+			String url = "http://localhost:" + receiver.port() + "/";
+			Assert.assertEquals(401, post(client, url, DEPLOYED, null));
+			Assert.assertEquals(401, post(client, url, DEPLOYED, "wrong"));
+			Assert.assertTrue(changed.isEmpty());
+			Assert.assertEquals(200, post(client, url, DEPLOYED, "s3cret"));
+			Assert.assertEquals(1, changed.size());
+		}
+	}
+
+	private static int post(CloseableHttpClient client, String url, String json, String secret) throws Exception {
+		HttpPost post = new HttpPost(url);
+		post.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+		if (secret != null) {
+			post.setHeader(WebhookReceiver.SECRET_HEADER, secret);
+		}
+		HttpResponse response = client.execute(post);
+		EntityUtils.consume(response.getEntity());
+		return response.getStatusLine().getStatusCode();
+	}
+}
@@ -0,0 +1,200 @@
+package com.github.cnenning.artiscm.integrationtest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.jaxrs.JAXRSServerFactoryBean;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.cnenning.artiscm.ArtifactoryScmPlugin;
+import com.thoughtworks.go.plugin.api.GoApplicationAccessor;
+import com.thoughtworks.go.plugin.api.request.DefaultGoPluginApiRequest;
+import com.thoughtworks.go.plugin.api.request.GoApiRequest;
+import com.thoughtworks.go.plugin.api.request.GoPluginApiRequest;
+import com.thoughtworks.go.plugin.api.response.DefaultGoApiResponse;
+import com.thoughtworks.go.plugin.api.response.GoApiResponse;
+import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
+
+/**
+ * Many parallel requests on one plugin instance, as go sends them with raised material update concurrency.
+ */
+public class ConcurrencyTests {
+
+	private static final int THREADS = 16;
+	private static final int REQUESTS_PER_THREAD = 20;
+
+	private static final String SETTINGS = "{"
+			+ "\"connectTimeout\": \"5000\","
+			+ "\"socketTimeout\": \"5000\","
+			+ "\"connectionRequestTimeout\": \"10000\","
+			+ "\"connPoolSize\": \"" + THREADS + "\","
+			+ "\"settingsReloadSeconds\": \"0\""
+			+ "}";
+
+	private static Server server;
+	private static String APP_URL;
+
+	private File tmpDir;
+
+	@BeforeClass
+	public static void startServer() throws Exception {
+		JAXRSServerFactoryBean sf = new JAXRSServerFactoryBean();
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		String serverUrl = "http://localhost:" + port + "/arti/repo";
+		APP_URL = serverUrl + "/" + IntegrationTests.APP_NAME + "/";
+		sf.setAddress(serverUrl);
+
+		List<Class<?>> resourceClasses = new ArrayList<>();
+		resourceClasses.add(ArtiTestJaxrsResource.class);
+		sf.setResourceClasses(resourceClasses);
+
+		server = sf.create();
+	}
+
+	@AfterClass
+	public static void cleanupServer() throws Exception {
+		server.stop();
+		server.destroy();
+	}
+
+	@Before
+	public void setupTmpDir() throws Exception {
+		tmpDir = File.createTempFile("test", Long.toString(System.nanoTime()));
+		tmpDir.delete();
+		tmpDir.mkdir();
+	}
+
+	@After
+	public void cleanupTmpDir() throws Exception {
+		FileUtils.deleteDirectory(tmpDir);
+	}
+
+	@Test
+	public void parallelRevisionsAndCheckouts() throws Exception {
+		final ArtifactoryScmPlugin plugin = new ArtifactoryScmPlugin();
+		plugin.initializeGoApplicationAccessor(new GoApplicationAccessor(){
+			@Override
+			public GoApiResponse submit(GoApiRequest request)
+			{
+				DefaultGoApiResponse response = new DefaultGoApiResponse(200);
+				response.setResponseBody(SETTINGS);
+				return response;
+			}
+		});
+
+		// single threaded reference
+		final String expectedRevisions = plugin.handle(revisionsSinceRequest()).responseBody();
+		Assert.assertTrue(expectedRevisions.contains("\"timestamp\":\"2016-01-02T11:45:00.000Z\""));
+		Assert.assertTrue(expectedRevisions.contains("\"timestamp\":\"2016-01-03T14:15:00.000Z\""));
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<Void>> futures = new ArrayList<>();
+		try {
+			for (int i = 0; i < THREADS; i++) {
+				final int thread = i;
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						start.await();
+						for (int j = 0; j < REQUESTS_PER_THREAD; j++) {
+							if ((thread + j) % 2 == 0) {
+								GoPluginApiResponse response = plugin.handle(revisionsSinceRequest());
+								Assert.assertEquals(expectedRevisions, response.responseBody());
+							} else {
+								File targetDir = new File(tmpDir, thread + "-" + j);
+								GoPluginApiResponse response = plugin.handle(checkoutRequest(targetDir));
+								Assert.assertTrue(response.responseBody(), response.responseBody().contains("\"status\":\"success\""));
+								assertCheckedOut(targetDir);
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			start.countDown();
+			for (Future<Void> future : futures) {
+				// rethrows assertion errors of workers
+				future.get(2, TimeUnit.MINUTES);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void assertCheckedOut(File targetDir) throws IOException {
+		String[] files = targetDir.list();
+		Arrays.sort(files);
+		Assert.assertEquals(Arrays.asList("foo##1.2.3.txt", "foobar##1.2.3.txt"), Arrays.asList(files));
+		assertFileContent(new File(targetDir, files[0]), "foobar");
+		assertFileContent(new File(targetDir, files[1]), "foobar foobar");
+	}
+
+	private void assertFileContent(File file, String content) throws IOException {
+		try (InputStream fileInput = new FileInputStream(file)){
+			List<String> lines = IOUtils.readLines(fileInput, "UTF-8");
+			Assert.assertFalse(lines.isEmpty());
+			Assert.assertEquals(content, lines.get(0));
+		}
+	}
+
+	private GoPluginApiRequest revisionsSinceRequest() {
+		String requestJson =
+				"{\"scm-configuration\": {"
+						+ "\"url\": {"
+						+ "\"value\": \"" + APP_URL + "\""
+						+ "}"
+				+ "},"
+				+ "\"previous-revision\": {"
+					+ "\"timestamp\": \"2016-01-02T08:00:00.000Z\""
+				+ "}"
+			+ "}"
+		;
+		return createRequest("latest-revisions-since", requestJson);
+	}
+
+	private GoPluginApiRequest checkoutRequest(File targetDir) {
+		String requestJson =
+				"{\"scm-configuration\": {"
+						+ "\"url\": {"
+						+ "\"value\": \"" + APP_URL + "\""
+						+ "}"
+				+ "},"
+				+ "\"destination-folder\": \"" + targetDir.getAbsolutePath().replaceAll("\\\\", "\\\\\\\\") + "\","
+				+ "\"revision\": {"
+					+ "\"revision\": \"1.2.3\""
+				+ "}"
+			+ "}"
+		;
+		return createRequest("checkout", requestJson);
+	}
+
+	private GoPluginApiRequest createRequest(String name, String body) {
+		DefaultGoPluginApiRequest request = new DefaultGoPluginApiRequest("scm", "1.0", name);
+		request.setRequestBody(body);
+		return request;
+	}
+}
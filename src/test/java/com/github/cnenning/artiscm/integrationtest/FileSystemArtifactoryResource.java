@@ -0,0 +1,369 @@
+package com.github.cnenning.artiscm.integrationtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.io.IOUtils;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.cnenning.artiscm.ArtifactoryClient;
+
+/**
+ * Stand-in for Artifactory serving a directory tree, each sub directory of the root is a repository.
+ * <pre>
+ * /{repo}/{path}/              listing html
+ * /{repo}/{path}/{file}        file content, supports Range
+ * /api/storage/{repo}/{path}   storage api json of folder or file
+ * </pre>
+ * Responses carry an ETag and are answered with 304 on a matching If-None-Match. Files carry
+ * X-Checksum-Sha1, X-Checksum-Md5 and X-Checksum-Sha256. Bodies of complete responses are gzipped
+ * if the client accepts it.
+ */
+@Path("/")
+public class FileSystemArtifactoryResource {
+
+	private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+	private static final DateTimeFormatter HTML_DATE_FORMATTER = ArtifactoryClient.HTML_DATE_FORMATTER.withLocale(Locale.ENGLISH);
+	private static final DateTimeFormatter ISO_DATE_FORMATTER = ISODateTimeFormat.dateTime().withZoneUTC();
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final File root;
+	private final Map<String, Checksums> checksums = new ConcurrentHashMap<>();
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong notModified = new AtomicLong();
+	private final AtomicLong partial = new AtomicLong();
+	private final AtomicLong gzipped = new AtomicLong();
+
+	public FileSystemArtifactoryResource(File root) {
+		this.root = root;
+	}
+
+	public long requests() {
+		return requests.get();
+	}
+
+	/** responses with status 304 */
+	public long notModified() {
+		return notModified.get();
+	}
+
+	/** responses with status 206 */
+	public long partial() {
+		return partial.get();
+	}
+
+	public long gzipped() {
+		return gzipped.get();
+	}
+
+	@GET
+	@Path("api/storage/{path: .*}")
+	public Response storage(@PathParam("path") String path,
+			@HeaderParam("If-None-Match") String ifNoneMatch,
+			@HeaderParam("Accept-Encoding") String acceptEncoding) throws IOException {
+		requests.incrementAndGet();
+		File file = resolve(path);
+		if (file == null || repo(path) == null) {
+			return Response.status(404).build();
+		}
+		String repo = repo(path);
+		String repoPath = "/" + trim(path.substring(repo.length()));
+		String baseUri = "/api/storage/" + repo + (repoPath.equals("/") ? "" : repoPath);
+
+		Map<String, Object> json = new LinkedHashMap<>();
+		json.put("repo", repo);
+		json.put("path", repoPath);
+		json.put("created", ISO_DATE_FORMATTER.print(file.lastModified()));
+		json.put("lastModified", ISO_DATE_FORMATTER.print(file.lastModified()));
+		if (file.isDirectory()) {
+			List<Map<String, Object>> children = new ArrayList<>();
+			for (File child : children(file)) {
+				Map<String, Object> entry = new LinkedHashMap<>();
+				entry.put("uri", "/" + child.getName());
+				entry.put("folder", child.isDirectory());
+				children.add(entry);
+			}
+			json.put("children", children);
+		} else {
+			Checksums sums = checksums(file);
+			json.put("downloadUri", "/" + repo + repoPath);
+			json.put("mimeType", "application/octet-stream");
+			json.put("size", Long.toString(file.length()));
+			Map<String, Object> checksumsJson = new LinkedHashMap<>();
+			checksumsJson.put("sha1", sums.sha1);
+			checksumsJson.put("md5", sums.md5);
+			checksumsJson.put("sha256", sums.sha256);
+			json.put("checksums", checksumsJson);
+			json.put("originalChecksums", checksumsJson);
+		}
+		json.put("uri", baseUri);
+		byte[] body = MAPPER.writeValueAsBytes(json);
+		return bytes(body, "application/json", sha1(body), ifNoneMatch, acceptEncoding);
+	}
+
+	@GET
+	@Path("{path: .*}")
+	public Response get(@PathParam("path") String path,
+			@HeaderParam("Range") String range,
+			@HeaderParam("If-None-Match") String ifNoneMatch,
+			@HeaderParam("Accept-Encoding") String acceptEncoding) throws IOException {
+		requests.incrementAndGet();
+		File file = resolve(path);
+		if (file == null) {
+			return Response.status(404).build();
+		}
+		if (file.isDirectory()) {
+			byte[] body = listing(file).getBytes("UTF-8");
+			return bytes(body, "text/html;charset=UTF-8", sha1(body), ifNoneMatch, acceptEncoding);
+		}
+
+		Checksums sums = checksums(file);
+		if (matches(ifNoneMatch, sums.sha1)) {
+			notModified.incrementAndGet();
+			return Response.notModified().header("ETag", sums.sha1).build();
+		}
+		long length = file.length();
+		long start = 0;
+		long end = length - 1;
+		boolean ranged = false;
+		Matcher matcher = range != null ? RANGE.matcher(range.trim()) : null;
+		if (matcher != null && matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+			if (matcher.group(1).isEmpty()) {
+				// suffix range, last n bytes
+				start = Math.max(0, length - Long.parseLong(matcher.group(2)));
+			} else {
+				start = Long.parseLong(matcher.group(1));
+				if (!matcher.group(2).isEmpty()) {
+					end = Math.min(end, Long.parseLong(matcher.group(2)));
+				}
+			}
+			if (start >= length || start > end) {
+				return Response.status(416).header("Content-Range", "bytes */" + length).build();
+			}
+			ranged = true;
+		}
+
+		Response.ResponseBuilder builder;
+		if (ranged) {
+			partial.incrementAndGet();
+			builder = Response.status(206).header("Content-Range", "bytes " + start + "-" + end + "/" + length);
+		} else {
+			builder = Response.ok();
+		}
+		boolean gzip = !ranged && acceptsGzip(acceptEncoding);
+		if (gzip) {
+			gzipped.incrementAndGet();
+			builder.header("Content-Encoding", "gzip");
+		} else {
+			builder.header("Content-Length", end - start + 1);
+		}
+		return builder
+				.entity(content(file, start, end - start + 1, gzip))
+				.type("application/octet-stream")
+				.header("Accept-Ranges", "bytes")
+				.header("ETag", sums.sha1)
+				.header("Last-Modified", new Date(file.lastModified()))
+				.header("X-Checksum-Sha1", sums.sha1)
+				.header("X-Checksum-Md5", sums.md5)
+				.header("X-Checksum-Sha256", sums.sha256)
+				.header("Vary", "Accept-Encoding")
+				.build();
+	}
+
+	private Response bytes(byte[] body, String contentType, String etag, String ifNoneMatch, String acceptEncoding) throws IOException {
+		if (matches(ifNoneMatch, etag)) {
+			notModified.incrementAndGet();
+			return Response.notModified().header("ETag", etag).build();
+		}
+		Response.ResponseBuilder builder = Response.ok().type(contentType).header("ETag", etag).header("Vary", "Accept-Encoding");
+		if (acceptsGzip(acceptEncoding)) {
+			gzipped.incrementAndGet();
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			try (OutputStream gzip = new GZIPOutputStream(compressed)) {
+				gzip.write(body);
+			}
+			body = compressed.toByteArray();
+			builder.header("Content-Encoding", "gzip");
+		}
+		return builder.header("Content-Length", body.length).entity(body).build();
+	}
+
+	private StreamingOutput content(final File file, final long offset, final long length, final boolean gzip) {
+		return new StreamingOutput() {
+			@Override
+			public void write(OutputStream output) throws IOException {
+				OutputStream target = gzip ? new GZIPOutputStream(output) : output;
+				try (InputStream input = new FileInputStream(file)) {
+					IOUtils.copyLarge(input, target, offset, length);
+				}
+				if (gzip) {
+					((GZIPOutputStream) target).finish();
+				}
+			}
+		};
+	}
+
+	private String listing(File dir) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 3.2 Final//EN\">\n");
+		sb.append("<html>\n<head><title>Index of ").append(dir.getName()).append("</title>\n</head>\n<body>\n");
+		sb.append("<h1>Index of ").append(dir.getName()).append("</h1>\n");
+		sb.append("<pre>Name              Last modified      Size</pre><hr/>\n");
+		sb.append("<pre><a href=\"../\">../</a>\n");
+		for (File child : children(dir)) {
+			String name = child.isDirectory() ? child.getName() + "/" : child.getName();
+			sb.append("<a href=\"").append(name).append("\">").append(name).append("</a>  ")
+				.append(HTML_DATE_FORMATTER.print(child.lastModified())).append("    ")
+				.append(child.isDirectory() ? "-" : child.length() + " bytes").append('\n');
+		}
+		sb.append("</pre>\n<hr/><address style=\"font-size:small;\">Artifactory/... Server at localhost</address></body></html>\n");
+		return sb.toString();
+	}
+
+	/**
+	 * @return existing file or directory below root, null otherwise
+	 */
+	private File resolve(String path) throws IOException {
+		File file = new File(root, trim(path)).getCanonicalFile();
+		String rootPath = root.getCanonicalPath();
+		if (!file.exists() || !(file.getPath().equals(rootPath) || file.getPath().startsWith(rootPath + File.separator))) {
+			return null;
+		}
+		return file;
+	}
+
+	private static String repo(String path) {
+		String trimmed = trim(path);
+		if (trimmed.isEmpty()) {
+			return null;
+		}
+		int slash = trimmed.indexOf('/');
+		return slash < 0 ? trimmed : trimmed.substring(0, slash);
+	}
+
+	private static String trim(String path) {
+		while (path.startsWith("/")) {
+			path = path.substring(1);
+		}
+		while (path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+		return path;
+	}
+
+	private static List<File> children(File dir) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return new ArrayList<>();
+		}
+		Arrays.sort(files);
+		return Arrays.asList(files);
+	}
+
+	private static boolean acceptsGzip(String acceptEncoding) {
+		return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ENGLISH).contains("gzip");
+	}
+
+	private static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String candidate : ifNoneMatch.split(",")) {
+			candidate = candidate.trim();
+			if (candidate.startsWith("W/")) {
+				candidate = candidate.substring(2);
+			}
+			if (candidate.startsWith("\"") && candidate.endsWith("\"") && candidate.length() > 1) {
+				candidate = candidate.substring(1, candidate.length() - 1);
+			}
+			if (candidate.equals("*") || candidate.equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Checksums checksums(File file) throws IOException {
+		String key = file.getPath() + ':' + file.length() + ':' + file.lastModified();
+		Checksums sums = checksums.get(key);
+		if (sums == null) {
+			sums = new Checksums(file);
+			checksums.put(key, sums);
+		}
+		return sums;
+	}
+
+	private static String sha1(byte[] bytes) {
+		return hex(digest("SHA-1").digest(bytes));
+	}
+
+	private static MessageDigest digest(String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	private static class Checksums {
+		final String sha1;
+		final String md5;
+		final String sha256;
+
+		Checksums(File file) throws IOException {
+			MessageDigest sha1Digest = digest("SHA-1");
+			MessageDigest md5Digest = digest("MD5");
+			MessageDigest sha256Digest = digest("SHA-256");
+			byte[] buffer = new byte[8192];
+			try (InputStream input = new FileInputStream(file)) {
+				int read;
+				while ((read = input.read(buffer)) > 0) {
+					sha1Digest.update(buffer, 0, read);
+					md5Digest.update(buffer, 0, read);
+					sha256Digest.update(buffer, 0, read);
+				}
+			}
+			sha1 = hex(sha1Digest.digest());
+			md5 = hex(md5Digest.digest());
+			sha256 = hex(sha256Digest.digest());
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package com.github.cnenning.artiscm.integrationtest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.jaxrs.JAXRSServerFactoryBean;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.cnenning.artiscm.ArtifactoryClient;
+import com.github.cnenning.artiscm.ArtifactoryClient.Revision;
+import com.github.cnenning.artiscm.FileManifest;
+
+public class FileSystemArtifactoryTests {
+
+	private File root;
+	private FileSystemArtifactoryResource resource;
+	private Server server;
+	private String serverUrl;
+	private CloseableHttpClient client;
+
+	@Before
+	public void startServer() throws Exception {
+		root = File.createTempFile("arti", Long.toString(System.nanoTime()));
+		root.delete();
+		write(new File(root, "repo/app/1.0.0/app.jar"), "0123456789");
+		write(new File(root, "repo/app/1.0.1/app.jar"), "abcdefghij");
+		write(new File(root, "repo/app/1.0.1/app.txt"), "some text");
+
+		try (ServerSocket socket = new ServerSocket(0)) {
+			serverUrl = "http://localhost:" + socket.getLocalPort() + "/arti";
+		}
+		resource = new FileSystemArtifactoryResource(root);
+		JAXRSServerFactoryBean sf = new JAXRSServerFactoryBean();
+		sf.setAddress(serverUrl);
+		sf.setServiceBeanObjects(resource);
+		server = sf.create();
+
+		// without transparent decompression to see Content-Encoding
+		client = HttpClients.custom().disableContentCompression().build();
+	}
+
+	@After
+	public void stopServer() throws Exception {
+		client.close();
+		server.stop();
+		server.destroy();
+		FileUtils.deleteDirectory(root);
+	}
+
+	private static void write(File file, String content) throws IOException {
+		file.getParentFile().mkdirs();
+		try (OutputStream output = new FileOutputStream(file)) {
+			output.write(content.getBytes("UTF-8"));
+		}
+	}
+
+	@Test
+	public void listingAndDownloadThroughClient() throws Exception {
+		File targetDir = new File(root, "target");
+		targetDir.mkdirs();
+		try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+			new ArtifactoryClient().downloadFiles(serverUrl + "/repo/app/1.0.1/", httpClient, null, targetDir, "app\\.jar");
+		}
+		Assert.assertEquals("abcdefghij", FileUtils.readFileToString(new File(targetDir, "app.jar"), "UTF-8"));
+		Assert.assertFalse(new File(targetDir, "app.txt").exists());
+		// default client accepts gzip
+		Assert.assertTrue(resource.gzipped() > 0);
+	}
+
+	@Test
+	public void downloadFromManifest() throws Exception {
+		File targetDir = new File(root, "target");
+		targetDir.mkdirs();
+		String url = serverUrl + "/repo/app/1.0.1/";
+		try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+			String encoded = FileManifest.encode(new TestClient().files(url, httpClient));
+			Assert.assertEquals("10 app.jar\n9 app.txt", encoded);
+			List<Revision> manifest = FileManifest.decode(encoded);
+			long listed = resource.requests();
+
+			new ArtifactoryClient().downloadFiles(url, httpClient, null, targetDir, null, manifest);
+			Assert.assertEquals("no listing", listed + 2, resource.requests());
+		}
+		Assert.assertEquals("abcdefghij", FileUtils.readFileToString(new File(targetDir, "app.jar"), "UTF-8"));
+		Assert.assertEquals("some text", FileUtils.readFileToString(new File(targetDir, "app.txt"), "UTF-8"));
+	}
+
+	/**
+	 * Makes listing of files accessible.
+	 */
+	private static class TestClient extends ArtifactoryClient {
+		List<Revision> files(String url, HttpClient client) throws IOException {
+			return files(url, client, null);
+		}
+	}
+
+	@Test
+	public void range() throws Exception {
+		HttpGet get = new HttpGet(serverUrl + "/repo/app/1.0.0/app.jar");
+		get.setHeader("Range", "bytes=2-5");
+		HttpResponse response = client.execute(get);
+		Assert.assertEquals(206, response.getStatusLine().getStatusCode());
+		Assert.assertEquals("bytes 2-5/10", response.getFirstHeader("Content-Range").getValue());
+		Assert.assertEquals("2345", EntityUtils.toString(response.getEntity()));
+
+		get.setHeader("Range", "bytes=7-");
+		response = client.execute(get);
+		Assert.assertEquals("789", EntityUtils.toString(response.getEntity()));
+
+		get.setHeader("Range", "bytes=-2");
+		response = client.execute(get);
+		Assert.assertEquals("89", EntityUtils.toString(response.getEntity()));
+
+		get.setHeader("Range", "bytes=10-");
+		response = client.execute(get);
+		EntityUtils.consume(response.getEntity());
+		Assert.assertEquals(416, response.getStatusLine().getStatusCode());
+		Assert.assertEquals(3, resource.partial());
+	}
+
+	@Test
+	public void etagAndChecksums() throws Exception {
+		HttpGet get = new HttpGet(serverUrl + "/repo/app/1.0.0/app.jar");
+		HttpResponse response = client.execute(get);
+		EntityUtils.consume(response.getEntity());
+		Assert.assertEquals(200, response.getStatusLine().getStatusCode());
+		// sha1, md5 and sha256 of "0123456789"
+		Assert.assertEquals("87acec17cd9dcd20a716cc2cf67417b71c8a7016", response.getFirstHeader("X-Checksum-Sha1").getValue());
+		Assert.assertEquals("781e5e245d69b566979b86e28d23f2c7", response.getFirstHeader("X-Checksum-Md5").getValue());
+		Assert.assertEquals("84d89877f0d4041efb6bf91a16f0248f2fd573e6af05c19f96bedb9f882f7882",
+				response.getFirstHeader("X-Checksum-Sha256").getValue());
+		String etag = response.getFirstHeader("ETag").getValue();
+
+		get.setHeader("If-None-Match", "\"" + etag + "\"");
+		response = client.execute(get);
+		Assert.assertEquals(304, response.getStatusLine().getStatusCode());
+
+		HttpGet listing = new HttpGet(serverUrl + "/repo/app/");
+		response = client.execute(listing);
+		String html = EntityUtils.toString(response.getEntity());
+		Assert.assertTrue(html, html.contains("<a href=\"1.0.1/\">1.0.1/</a>"));
+		listing.setHeader("If-None-Match", response.getFirstHeader("ETag").getValue());
+		response = client.execute(listing);
+		Assert.assertEquals(304, response.getStatusLine().getStatusCode());
+		Assert.assertEquals(2, resource.notModified());
+	}
+
+	@Test
+	public void gzip() throws Exception {
+		HttpGet get = new HttpGet(serverUrl + "/repo/app/1.0.1/");
+		get.setHeader("Accept-Encoding", "gzip");
+		HttpResponse response = client.execute(get);
+		Assert.assertEquals("gzip", response.getFirstHeader("Content-Encoding").getValue());
+		String html = IOUtils.toString(new GZIPInputStream(response.getEntity().getContent()), "UTF-8");
+		Assert.assertTrue(html, html.contains("<a href=\"app.txt\">app.txt</a>"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void storageApi() throws Exception {
+		ObjectMapper mapper = new ObjectMapper();
+		HttpResponse response = client.execute(new HttpGet(serverUrl + "/api/storage/repo/app"));
+		Map<String, Object> folder = mapper.readValue(EntityUtils.toString(response.getEntity()), Map.class);
+		Assert.assertEquals("repo", folder.get("repo"));
+		Assert.assertEquals("/app", folder.get("path"));
+		Assert.assertEquals(2, ((List<?>) folder.get("children")).size());
+
+		response = client.execute(new HttpGet(serverUrl + "/api/storage/repo/app/1.0.0/app.jar"));
+		Map<String, Object> file = mapper.readValue(EntityUtils.toString(response.getEntity()), Map.class);
+		Assert.assertEquals("10", file.get("size"));
+		Assert.assertEquals("87acec17cd9dcd20a716cc2cf67417b71c8a7016", ((Map<String, Object>) file.get("checksums")).get("sha1"));
+
+		response = client.execute(new HttpGet(serverUrl + "/api/storage/repo/missing"));
+		EntityUtils.consume(response.getEntity());
+		Assert.assertEquals(404, response.getStatusLine().getStatusCode());
+	}
+}
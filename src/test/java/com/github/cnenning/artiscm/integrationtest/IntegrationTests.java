@@ -4,12 +4,18 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.apache.commons.io.IOUtils;
 import org.apache.cxf.endpoint.Server;
 import org.apache.cxf.jaxrs.JAXRSServerFactoryBean;
@@ -23,6 +29,7 @@ import org.junit.Test;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.cnenning.artiscm.ArtifactoryPkgPlugin;
 import com.github.cnenning.artiscm.ArtifactoryScmPlugin;
+import com.github.cnenning.artiscm.WebhookReceiver;
 import com.thoughtworks.go.plugin.api.GoApplicationAccessor;
 import com.thoughtworks.go.plugin.api.request.DefaultGoPluginApiRequest;
 import com.thoughtworks.go.plugin.api.request.GoApiRequest;
@@ -144,6 +151,31 @@ public class IntegrationTests {
 		// just make sure there is no exception
 	}
 
+	@Test
+	public void unloadReleasesWebhookPort() throws Exception {
+		final int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		ArtifactoryScmPlugin plugin = new ArtifactoryScmPlugin();
+		plugin.initializeGoApplicationAccessor(new GoApplicationAccessor(){
+			
+			@Override
+			public GoApiResponse submit(GoApiRequest request)
+			{
+				DefaultGoApiResponse response = new DefaultGoApiResponse(200);
+				response.setResponseBody("{\"webhookPort\": \"" + port + "\"}");
+				return response;
+			}
+		});
+		Assert.assertEquals(port, plugin.webhookReceiver().port());
+
+		plugin.unload(null);
+
+		Assert.assertNull(plugin.webhookReceiver());
+		new ServerSocket(port, 0, InetAddress.getByName(WebhookReceiver.DEFAULT_BIND_ADDRESS)).close();
+	}
+
 	@Test
 	public void pluginSettings() throws Exception {
 		String requestJson =
@@ -270,6 +302,25 @@ public class IntegrationTests {
 		Assert.assertTrue(response.responseBody().contains("\"message\":\"Must be an integer\""));
 	}
 
+	@Test
+	public void settingsValidationBadHedgePercentile() throws Exception {
+		String requestJson =
+				"{\"plugin-settings\": {"
+					+ "\"hedgePercentile\": {"
+					+ "\"value\": \"100\""
+					+ "}"
+				+ "}}"
+		;
+		GoPluginApiRequest request = createRequest("go.plugin-settings.validate-configuration", requestJson);
+
+		ArtifactoryScmPlugin plugin = new ArtifactoryScmPlugin();
+		GoPluginApiResponse response = plugin.handle(request);
+
+		Assert.assertNotNull(response);
+		Assert.assertTrue(response.responseBody().contains("\"key\":\"hedgePercentile\""));
+		Assert.assertTrue(response.responseBody().contains("\"message\":\"Must be a number between 0 and 100\""));
+	}
+
 	@Test
 	public void settingsView() throws Exception {
 		String requestJson ="{}";
@@ -559,6 +610,38 @@ public class IntegrationTests {
 		Assert.assertFalse(response.responseBody().contains("0.5.1"));
 	}
 
+	@Test
+	public void requestMetricsMBean() throws Exception {
+		String requestJson =
+				"{\"scm-configuration\": {"
+						+ "\"url\": {"
+						+ "\"value\": \"" + APP_URL + "\""
+						+ "}"
+				+ "},"
+				+ "\"previous-revision\": {"
+					+ "\"timestamp\": \"2016-01-02T08:00:00.000Z\""
+				+ "}"
+			+ "}"
+		;
+		ArtifactoryScmPlugin plugin = createPluginScm();
+		plugin.handle(createRequest("latest-revisions-since", requestJson));
+		plugin.handle(createRequest("latest-revisions-since", "{not json"));
+
+		ObjectName name = plugin.metrics().objectName("latest-revisions-since");
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		Assert.assertEquals(1L, server.getAttribute(name, "SuccessCount"));
+		Assert.assertEquals(1L, server.getAttribute(name, "ErrorCount"));
+		Assert.assertTrue((Double) server.getAttribute(name, "SuccessP99Millis") > 0);
+		// listing of app and one per revision since
+		Assert.assertTrue((Long) server.getAttribute(name, "HttpCalls") >= 3);
+		Assert.assertTrue((Long) server.getAttribute(name, "HttpBytes") > 0);
+		Assert.assertTrue((Long) server.getAttribute(name, "ParsedEntries") > 0);
+
+		plugin.unload(null);
+		Assert.assertFalse(server.isRegistered(name));
+		Assert.assertFalse(server.isRegistered(plugin.metrics().materialsObjectName()));
+	}
+
 	@Test
 	public void checkScmConnection_versionRegex() throws Exception {
 		String requestJson =
@@ -0,0 +1,231 @@
+package com.github.cnenning.artiscm.loadtest;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.jaxrs.JAXRSServerFactoryBean;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+
+import com.github.cnenning.artiscm.ArtifactoryClient;
+
+/**
+ * Throughput of {@link ArtifactoryClient#downloadFiles} against a {@link LoadTestResource} on localhost,
+ * for each combination of file size, file count and number of parallel checkouts.
+ * Reports MB/s, CPU time and allocated bytes of downloading threads and peak heap.
+ * <p>
+ * Run with <code>gradle downloadBenchmark</code>, settings are system properties, e.g.
+ * <code>-Ddownload.sizes=1024,1048576,4294967296 -Ddownload.files=1,10 -Ddownload.threads=1,4
+ * -Ddownload.iterations=3</code>. Files are written to a temporary directory, sizes times files times threads
+ * have to fit on disk.
+ */
+public class DownloadBenchmark {
+
+	public long[] sizes = {1024, 1024 * 1024, 100 * 1024 * 1024};
+	public int[] fileCounts = {1, 10};
+	public int[] threadCounts = {1, 4};
+	public int iterations = 3;
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	public static void main(String[] args) throws Exception {
+		DownloadBenchmark benchmark = new DownloadBenchmark();
+		benchmark.sizes = longs(System.getProperty("download.sizes"), benchmark.sizes);
+		benchmark.fileCounts = ints(System.getProperty("download.files"), benchmark.fileCounts);
+		benchmark.threadCounts = ints(System.getProperty("download.threads"), benchmark.threadCounts);
+		benchmark.iterations = Integer.getInteger("download.iterations", benchmark.iterations);
+		for (Result result : benchmark.run()) {
+			System.out.println(result);
+		}
+		System.exit(0);
+	}
+
+	public List<Result> run() throws Exception {
+		List<Result> results = new ArrayList<>();
+		for (long size : sizes) {
+			for (int files : fileCounts) {
+				for (int threads : threadCounts) {
+					results.add(run(size, files, threads));
+				}
+			}
+		}
+		return results;
+	}
+
+	public Result run(long size, int files, final int threads) throws Exception {
+		LoadProfile profile = new LoadProfile();
+		profile.fileBytes = size;
+		// each third entry of a listing is a file, the others are checksums
+		profile.files = files * 3 - 2;
+		LoadTestResource resource = new LoadTestResource(profile);
+
+		String repoUrl;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			repoUrl = "http://localhost:" + socket.getLocalPort() + "/arti/repo";
+		}
+		JAXRSServerFactoryBean sf = new JAXRSServerFactoryBean();
+		sf.setAddress(repoUrl);
+		sf.setServiceBeanObjects(resource);
+		Server server = sf.create();
+
+		final String url = repoUrl + "/app/1.0.0/";
+		final File baseDir = File.createTempFile("download-benchmark", "");
+		baseDir.delete();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try (CloseableHttpClient client = HttpClientBuilder.create().setMaxConnPerRoute(threads).setMaxConnTotal(threads).build()) {
+			Result result = new Result(size, files, threads);
+			// first iteration warms up
+			for (int iteration = 0; iteration <= iterations; iteration++) {
+				resetPeakHeap();
+				List<Future<long[]>> futures = new ArrayList<>();
+				long start = System.nanoTime();
+				for (int i = 0; i < threads; i++) {
+					final File targetDir = new File(baseDir, iteration + "-" + i);
+					futures.add(executor.submit(new Callable<long[]>() {
+						@Override
+						public long[] call() throws Exception {
+							targetDir.mkdirs();
+							long cpuStart = THREADS.getCurrentThreadCpuTime();
+							long allocatedStart = allocatedBytes();
+							new ArtifactoryClient().downloadFiles(url, client, null, targetDir, null);
+							return new long[] {THREADS.getCurrentThreadCpuTime() - cpuStart, allocatedBytes() - allocatedStart};
+						}
+					}));
+				}
+				long cpuNanos = 0;
+				long allocated = 0;
+				for (Future<long[]> future : futures) {
+					long[] threadResult = future.get();
+					cpuNanos += threadResult[0];
+					allocated += threadResult[1];
+				}
+				long elapsedNanos = System.nanoTime() - start;
+				if (iteration > 0) {
+					result.add(elapsedNanos, cpuNanos, allocated, peakHeap());
+				}
+				FileUtils.deleteDirectory(baseDir);
+			}
+			return result;
+		} finally {
+			executor.shutdownNow();
+			FileUtils.deleteQuietly(baseDir);
+			server.stop();
+			server.destroy();
+		}
+	}
+
+	/**
+	 * @return bytes allocated by current thread, -1 if JVM cannot tell
+	 */
+	private static long allocatedBytes() {
+		if (THREADS instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	private static void resetPeakHeap() {
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	private static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	private static long[] longs(String value, long[] defaultValue) {
+		if (value == null || value.isEmpty()) {
+			return defaultValue;
+		}
+		String[] parts = value.split(",");
+		long[] result = new long[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			result[i] = Long.parseLong(parts[i].trim());
+		}
+		return result;
+	}
+
+	private static int[] ints(String value, int[] defaultValue) {
+		if (value == null || value.isEmpty()) {
+			return defaultValue;
+		}
+		String[] parts = value.split(",");
+		int[] result = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			result[i] = Integer.parseInt(parts[i].trim());
+		}
+		return result;
+	}
+
+	public static class Result {
+		public final long size;
+		public final int files;
+		public final int threads;
+		private int iterations;
+		private long elapsedNanos;
+		private long cpuNanos;
+		private long allocatedBytes;
+		private long peakHeapBytes;
+
+		Result(long size, int files, int threads) {
+			this.size = size;
+			this.files = files;
+			this.threads = threads;
+		}
+
+		void add(long elapsedNanos, long cpuNanos, long allocatedBytes, long peakHeapBytes) {
+			this.iterations++;
+			this.elapsedNanos += elapsedNanos;
+			this.cpuNanos += cpuNanos;
+			this.allocatedBytes += allocatedBytes;
+			this.peakHeapBytes = Math.max(this.peakHeapBytes, peakHeapBytes);
+		}
+
+		/**
+		 * @return bytes downloaded by all threads in one iteration
+		 */
+		public long bytesPerIteration() {
+			return size * files * threads;
+		}
+
+		public double megabytesPerSecond() {
+			return elapsedNanos > 0
+					? bytesPerIteration() * (double) iterations / (1024 * 1024) / (elapsedNanos / 1e9)
+					: 0;
+		}
+
+		public double cpuMillisPerIteration() {
+			return iterations > 0 ? TimeUnit.NANOSECONDS.toMicros(cpuNanos / iterations) / 1000.0 : 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("size: %d B, files: %d, threads: %d -> %.1f MB/s, cpu: %.1f ms, allocated: %d KB, peak heap: %d MB",
+					size, files, threads, megabytesPerSecond(), cpuMillisPerIteration(),
+					iterations > 0 ? allocatedBytes / iterations / 1024 : 0, peakHeapBytes / (1024 * 1024));
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.github.cnenning.artiscm.loadtest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Small run of the download benchmark, to keep it working. Real runs use <code>gradle downloadBenchmark</code>.
+ */
+public class DownloadBenchmarkTests {
+
+	@Test
+	public void downloads() throws Exception {
+		DownloadBenchmark benchmark = new DownloadBenchmark();
+		benchmark.iterations = 1;
+		DownloadBenchmark.Result result = benchmark.run(64 * 1024, 2, 2);
+		Assert.assertEquals(256 * 1024, result.bytesPerIteration());
+		Assert.assertTrue(result.toString(), result.megabytesPerSecond() > 0);
+		Assert.assertTrue(result.toString(), result.cpuMillisPerIteration() >= 0);
+	}
+}
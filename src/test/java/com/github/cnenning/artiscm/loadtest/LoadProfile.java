@@ -0,0 +1,50 @@
+package com.github.cnenning.artiscm.loadtest;
+
+/**
+ * Shape of the repositories served by {@link LoadTestResource}. Each value can be overridden by a system
+ * property of same name prefixed with <code>load.</code>, e.g. <code>-Dload.versions=500</code>.
+ */
+public class LoadProfile {
+
+	/** versions in each material's listing */
+	public int versions = 100;
+	/** files in each version, a third of them checksum files */
+	public int files = 9;
+	/** size of each downloaded file */
+	public long fileBytes = 1024;
+	/** padding appended to each listing as html comment, to simulate large listings */
+	public int listingPaddingBytes = 0;
+	/** a new version appears in each listing this often, 0 for static listings */
+	public long newVersionMillis = 0;
+	/** latency added to each response */
+	public long latencyMillis = 0;
+	/** random extra latency up to this value */
+	public long latencyJitterMillis = 0;
+	/** share of responses answered with status 500, from 0 to 1 */
+	public double errorRate = 0;
+
+	public static LoadProfile fromSystemProperties() {
+		LoadProfile profile = new LoadProfile();
+		profile.versions = Integer.getInteger("load.versions", profile.versions);
+		profile.files = Integer.getInteger("load.files", profile.files);
+		profile.fileBytes = Long.getLong("load.fileBytes", profile.fileBytes);
+		profile.listingPaddingBytes = Integer.getInteger("load.listingPaddingBytes", profile.listingPaddingBytes);
+		profile.newVersionMillis = Long.getLong("load.newVersionMillis", profile.newVersionMillis);
+		profile.latencyMillis = Long.getLong("load.latencyMillis", profile.latencyMillis);
+		profile.latencyJitterMillis = Long.getLong("load.latencyJitterMillis", profile.latencyJitterMillis);
+		profile.errorRate = Double.parseDouble(System.getProperty("load.errorRate", String.valueOf(profile.errorRate)));
+		return profile;
+	}
+
+	@Override
+	public String toString() {
+		return "versions: " + versions
+				+ ", files: " + files
+				+ ", fileBytes: " + fileBytes
+				+ ", listingPaddingBytes: " + listingPaddingBytes
+				+ ", newVersionMillis: " + newVersionMillis
+				+ ", latencyMillis: " + latencyMillis
+				+ ", latencyJitterMillis: " + latencyJitterMillis
+				+ ", errorRate: " + errorRate;
+	}
+}
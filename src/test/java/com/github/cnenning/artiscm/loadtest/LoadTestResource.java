@@ -0,0 +1,184 @@
+package com.github.cnenning.artiscm.loadtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.joda.time.format.DateTimeFormatter;
+
+import com.github.cnenning.artiscm.ArtifactoryClient;
+
+/**
+ * Stand-in for Artifactory serving generated listings of any repository path, shaped by a {@link LoadProfile}.
+ * <pre>
+ * /{app}/                  versions 1.0.0, 1.0.1, ...
+ * /{app}/{version}/        files app-0.jar, app-0.jar.md5, app-0.jar.sha1, app-3.jar, ...
+ * /{app}/{version}/{file}  file content
+ * </pre>
+ */
+@Path("/")
+public class LoadTestResource {
+
+	/** 01-Jan-2016 00:00 UTC */
+	private static final long START_MILLIS = 1451606400000L;
+	private static final long MINUTE_MILLIS = 60000;
+
+	private static final DateTimeFormatter DATE_FORMATTER = ArtifactoryClient.HTML_DATE_FORMATTER.withLocale(Locale.ENGLISH);
+
+	private final LoadProfile profile;
+	private final long createdMillis = System.currentTimeMillis();
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong injectedErrors = new AtomicLong();
+
+	public LoadTestResource(LoadProfile profile) {
+		this.profile = profile;
+	}
+
+	public long requests() {
+		return requests.get();
+	}
+
+	public long injectedErrors() {
+		return injectedErrors.get();
+	}
+
+	/**
+	 * @return versions currently in each listing, grows over time if configured
+	 */
+	public int currentVersions() {
+		if (profile.newVersionMillis < 1) {
+			return profile.versions;
+		}
+		return profile.versions + (int) ((System.currentTimeMillis() - createdMillis) / profile.newVersionMillis);
+	}
+
+	public static long timestamp(int version) {
+		return START_MILLIS + version * MINUTE_MILLIS;
+	}
+
+	@GET
+	@Path("{app}")
+	@Produces("text/html")
+	public Response listVersions(@PathParam("app") String app) throws InterruptedException {
+		Response error = simulate();
+		if (error != null) {
+			return error;
+		}
+		StringBuilder sb = header();
+		int versions = currentVersions();
+		for (int i = 0; i < versions; i++) {
+			entry(sb, "1.0." + i + "/", timestamp(i), "-");
+		}
+		return Response.ok(footer(sb)).build();
+	}
+
+	@GET
+	@Path("{app}/{version}")
+	@Produces("text/html")
+	public Response listFiles(@PathParam("app") String app, @PathParam("version") String version) throws InterruptedException {
+		Response error = simulate();
+		if (error != null) {
+			return error;
+		}
+		StringBuilder sb = header();
+		for (int i = 0; i < profile.files; i++) {
+			String name;
+			switch (i % 3) {
+			case 1:
+				name = "app-" + (i - 1) + ".jar.md5";
+				break;
+			case 2:
+				name = "app-" + (i - 2) + ".jar.sha1";
+				break;
+			default:
+				name = "app-" + i + ".jar";
+			}
+			entry(sb, name, START_MILLIS + i * MINUTE_MILLIS, profile.fileBytes + " bytes");
+		}
+		return Response.ok(footer(sb)).build();
+	}
+
+	@GET
+	@Path("{app}/{version}/{file}")
+	@Produces("application/octet-stream")
+	public Response download(@PathParam("app") String app, @PathParam("version") String version, @PathParam("file") String file)
+			throws InterruptedException {
+		Response error = simulate();
+		if (error != null) {
+			return error;
+		}
+		final long size = profile.fileBytes;
+		StreamingOutput content = new StreamingOutput() {
+			@Override
+			public void write(OutputStream output) throws IOException {
+				byte[] buffer = new byte[8192];
+				for (int i = 0; i < buffer.length; i++) {
+					buffer[i] = (byte) ('a' + i % 26);
+				}
+				long remaining = size;
+				while (remaining > 0) {
+					int chunk = (int) Math.min(buffer.length, remaining);
+					output.write(buffer, 0, chunk);
+					remaining -= chunk;
+				}
+			}
+		};
+		return Response.ok(content).header("Content-Length", size).build();
+	}
+
+	/**
+	 * @return error response to send instead, null to go on
+	 */
+	private Response simulate() throws InterruptedException {
+		requests.incrementAndGet();
+		long latency = profile.latencyMillis;
+		if (profile.latencyJitterMillis > 0) {
+			latency += ThreadLocalRandom.current().nextLong(profile.latencyJitterMillis + 1);
+		}
+		if (latency > 0) {
+			Thread.sleep(latency);
+		}
+		if (profile.errorRate > 0 && ThreadLocalRandom.current().nextDouble() < profile.errorRate) {
+			injectedErrors.incrementAndGet();
+			return Response.serverError().build();
+		}
+		return null;
+	}
+
+	private StringBuilder header() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 3.2 Final//EN\">\n");
+		sb.append("<html>\n<head><title>Index of ...</title>\n</head>\n<body>\n<h1>Index of ...</h1>\n");
+		sb.append("<pre>Name              Last modified      Size</pre><hr/>\n");
+		sb.append("<pre><a href=\"../\">../</a>\n");
+		return sb;
+	}
+
+	private void entry(StringBuilder sb, String name, long millis, String size) {
+		sb.append("<a href=\"").append(name).append("\">").append(name).append("</a>  ")
+			.append(DATE_FORMATTER.print(millis)).append("    ").append(size).append('\n');
+	}
+
+	private String footer(StringBuilder sb) {
+		sb.append("</pre>\n");
+		if (profile.listingPaddingBytes > 0) {
+			sb.append("<!-- ");
+			for (int i = 0; i < profile.listingPaddingBytes; i++) {
+				sb.append('x');
+			}
+			sb.append(" -->\n");
+		}
+		sb.append("<hr/><address style=\"font-size:small;\">Artifactory/... Server at ... Port ...</address></body></html>\n");
+		return sb.toString();
+	}
+}
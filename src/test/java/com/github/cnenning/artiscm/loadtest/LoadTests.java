@@ -0,0 +1,43 @@
+package com.github.cnenning.artiscm.loadtest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Short runs of the polling simulator, to keep the harness working. Real load tests run with <code>gradle loadTest</code>.
+ */
+public class LoadTests {
+
+	@Test
+	public void pollsMaterials() throws Exception {
+		PollingSimulator simulator = new PollingSimulator();
+		simulator.materials = 10;
+		simulator.threads = 2;
+		simulator.pollIntervalMillis = 200;
+		simulator.durationSeconds = 2;
+		simulator.profile.versions = 20;
+		simulator.profile.newVersionMillis = 300;
+
+		PollingSimulator.Report report = simulator.run();
+		Assert.assertTrue(report.toString(), report.polls >= simulator.materials);
+		Assert.assertEquals(report.toString(), 0, report.failedPolls);
+		// versions listing plus files of new versions
+		Assert.assertTrue(report.toString(), report.httpCallsPerPoll >= 1);
+		Assert.assertTrue(report.toString(), report.p50Millis > 0);
+	}
+
+	@Test
+	public void injectedErrorsFailPolls() throws Exception {
+		PollingSimulator simulator = new PollingSimulator();
+		simulator.materials = 5;
+		simulator.threads = 2;
+		simulator.pollIntervalMillis = 100;
+		simulator.durationSeconds = 1;
+		simulator.pluginSettings = "{\"settingsReloadSeconds\": \"0\", \"circuitBreakerThreshold\": \"0\"}";
+		simulator.profile.errorRate = 1;
+
+		PollingSimulator.Report report = simulator.run();
+		Assert.assertEquals(report.toString(), report.polls, report.failedPolls);
+		Assert.assertTrue(report.toString(), report.injectedErrors > 0);
+	}
+}
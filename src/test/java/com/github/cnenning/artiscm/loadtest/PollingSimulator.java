@@ -0,0 +1,220 @@
+package com.github.cnenning.artiscm.loadtest;
+
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.jaxrs.JAXRSServerFactoryBean;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.cnenning.artiscm.ArtifactoryScmPlugin;
+import com.github.cnenning.artiscm.LatencyHistogram;
+import com.github.cnenning.artiscm.RequestMetrics;
+import com.thoughtworks.go.plugin.api.GoApplicationAccessor;
+import com.thoughtworks.go.plugin.api.request.DefaultGoPluginApiRequest;
+import com.thoughtworks.go.plugin.api.request.GoApiRequest;
+import com.thoughtworks.go.plugin.api.response.DefaultGoApiResponse;
+import com.thoughtworks.go.plugin.api.response.GoApiResponse;
+import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
+
+/**
+ * Simulates go-server polling many SCM materials through one plugin instance against a {@link LoadTestResource}.
+ * Like go each material is polled with latest-revision first and latest-revisions-since afterwards,
+ * polls start at random offsets within the poll interval and run on a fixed number of threads.
+ * <p>
+ * Run with <code>gradle loadTest</code>, settings are system properties: <code>-Dload.materials=200
+ * -Dload.threads=10 -Dload.pollIntervalMillis=60000 -Dload.durationSeconds=300</code>, plugin settings as json in
+ * <code>load.pluginSettings</code> and repository shape as described in {@link LoadProfile}.
+ */
+public class PollingSimulator {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	public int materials = 20;
+	public int threads = 4;
+	public long pollIntervalMillis = 1000;
+	public long durationSeconds = 10;
+	public String pluginSettings = "{\"settingsReloadSeconds\": \"0\"}";
+	public LoadProfile profile = new LoadProfile();
+
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private final AtomicLong polls = new AtomicLong();
+	private final AtomicLong failedPolls = new AtomicLong();
+
+	public static void main(String[] args) throws Exception {
+		PollingSimulator simulator = new PollingSimulator();
+		simulator.materials = Integer.getInteger("load.materials", simulator.materials);
+		simulator.threads = Integer.getInteger("load.threads", simulator.threads);
+		simulator.pollIntervalMillis = Long.getLong("load.pollIntervalMillis", simulator.pollIntervalMillis);
+		simulator.durationSeconds = Long.getLong("load.durationSeconds", simulator.durationSeconds);
+		simulator.pluginSettings = System.getProperty("load.pluginSettings", simulator.pluginSettings);
+		simulator.profile = LoadProfile.fromSystemProperties();
+		System.out.println(simulator.run());
+		System.exit(0);
+	}
+
+	public Report run() throws Exception {
+		LoadTestResource resource = new LoadTestResource(profile);
+		String repoUrl;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			repoUrl = "http://localhost:" + socket.getLocalPort() + "/arti/repo";
+		}
+		JAXRSServerFactoryBean sf = new JAXRSServerFactoryBean();
+		sf.setAddress(repoUrl);
+		sf.setServiceBeanObjects(resource);
+		Server server = sf.create();
+
+		ScheduledExecutorService executor = Executors.newScheduledThreadPool(threads);
+		try {
+			ArtifactoryScmPlugin plugin = createPlugin();
+			long start = System.nanoTime();
+			for (int i = 0; i < materials; i++) {
+				Material material = new Material(plugin, repoUrl + "/app-" + i + "/");
+				long offset = ThreadLocalRandom.current().nextLong(pollIntervalMillis);
+				executor.scheduleWithFixedDelay(material, offset, pollIntervalMillis, TimeUnit.MILLISECONDS);
+			}
+			Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+			long elapsedNanos = System.nanoTime() - start;
+
+			long httpCalls = 0;
+			for (String requestName : Arrays.asList(ArtifactoryScmPlugin.REQUEST_SCM_LATEST_REVISION,
+					ArtifactoryScmPlugin.REQUEST_SCM_LATEST_REVISIONS_SINCE)) {
+				RequestMetrics metrics = plugin.metrics().forRequest(requestName);
+				httpCalls += metrics.getHttpCalls();
+			}
+			return new Report(this, elapsedNanos, httpCalls, resource.requests(), resource.injectedErrors());
+		} finally {
+			executor.shutdownNow();
+			server.stop();
+			server.destroy();
+		}
+	}
+
+	private ArtifactoryScmPlugin createPlugin() {
+		ArtifactoryScmPlugin plugin = new ArtifactoryScmPlugin();
+		plugin.initializeGoApplicationAccessor(new GoApplicationAccessor() {
+			@Override
+			public GoApiResponse submit(GoApiRequest request) {
+				DefaultGoApiResponse response = new DefaultGoApiResponse(200);
+				response.setResponseBody(pluginSettings);
+				return response;
+			}
+		});
+		return plugin;
+	}
+
+	/**
+	 * Polls one material, remembers latest revision as go does.
+	 */
+	private class Material implements Runnable {
+		private final ArtifactoryScmPlugin plugin;
+		private final String url;
+		private String revision;
+		private String timestamp;
+
+		Material(ArtifactoryScmPlugin plugin, String url) {
+			this.plugin = plugin;
+			this.url = url;
+		}
+
+		@Override
+		public void run() {
+			long start = System.nanoTime();
+			boolean success = false;
+			try {
+				success = poll();
+			} catch (Exception e) {
+				// counted as failed poll
+			} finally {
+				latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+				polls.incrementAndGet();
+				if (!success) {
+					failedPolls.incrementAndGet();
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private boolean poll() throws Exception {
+			String scmConfiguration = "\"scm-configuration\": {\"url\": {\"value\": \"" + url + "\"}}";
+			DefaultGoPluginApiRequest request;
+			if (revision == null) {
+				request = new DefaultGoPluginApiRequest("scm", "1.0", ArtifactoryScmPlugin.REQUEST_SCM_LATEST_REVISION);
+				request.setRequestBody("{" + scmConfiguration + "}");
+			} else {
+				request = new DefaultGoPluginApiRequest("scm", "1.0", ArtifactoryScmPlugin.REQUEST_SCM_LATEST_REVISIONS_SINCE);
+				request.setRequestBody("{" + scmConfiguration + ", \"previous-revision\": {"
+						+ "\"revision\": \"" + revision + "\", \"timestamp\": \"" + timestamp + "\", \"data\": {}}}");
+			}
+			GoPluginApiResponse response = plugin.handle(request);
+			if (response == null || response.responseCode() != 200) {
+				return false;
+			}
+			Map<String, Object> body = MAPPER.readValue(response.responseBody(), Map.class);
+			Map<String, Object> latest = null;
+			if (body.get("revision") instanceof Map) {
+				latest = (Map<String, Object>) body.get("revision");
+			} else if (body.get("revisions") instanceof List) {
+				List<Map<String, Object>> revisions = (List<Map<String, Object>>) body.get("revisions");
+				if (!revisions.isEmpty()) {
+					latest = revisions.get(revisions.size() - 1);
+				}
+			}
+			if (latest != null) {
+				revision = (String) latest.get("revision");
+				timestamp = (String) latest.get("timestamp");
+			}
+			return true;
+		}
+	}
+
+	public static class Report {
+		public final long polls;
+		public final long failedPolls;
+		public final double pollsPerSecond;
+		public final double p50Millis;
+		public final double p95Millis;
+		public final double p99Millis;
+		public final double maxMillis;
+		public final double httpCallsPerPoll;
+		public final long serverRequests;
+		public final long injectedErrors;
+		private final String setup;
+
+		Report(PollingSimulator simulator, long elapsedNanos, long httpCalls, long serverRequests, long injectedErrors) {
+			LatencyHistogram latencies = simulator.latencies;
+			this.polls = simulator.polls.get();
+			this.failedPolls = simulator.failedPolls.get();
+			this.pollsPerSecond = polls / (elapsedNanos / 1e9);
+			this.p50Millis = latencies.percentile(50) / 1000.0;
+			this.p95Millis = latencies.percentile(95) / 1000.0;
+			this.p99Millis = latencies.percentile(99) / 1000.0;
+			this.maxMillis = latencies.max() / 1000.0;
+			this.httpCallsPerPoll = polls > 0 ? (double) httpCalls / polls : 0;
+			this.serverRequests = serverRequests;
+			this.injectedErrors = injectedErrors;
+			this.setup = "materials: " + simulator.materials
+					+ ", threads: " + simulator.threads
+					+ ", pollIntervalMillis: " + simulator.pollIntervalMillis
+					+ ", durationSeconds: " + simulator.durationSeconds
+					+ "\n" + simulator.profile;
+		}
+
+		@Override
+		public String toString() {
+			return setup
+					+ String.format("%npolls: %d (%d failed), %.1f polls/s", polls, failedPolls, pollsPerSecond)
+					+ String.format("%nlatency p50: %.1f ms, p95: %.1f ms, p99: %.1f ms, max: %.1f ms", p50Millis, p95Millis, p99Millis, maxMillis)
+					+ String.format("%nhttp calls per poll: %.2f, server requests: %d (%d injected errors)", httpCallsPerPoll, serverRequests, injectedErrors);
+		}
+	}
+}
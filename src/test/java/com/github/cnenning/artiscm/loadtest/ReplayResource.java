@@ -0,0 +1,92 @@
+package com.github.cnenning.artiscm.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.Response;
+
+import com.github.cnenning.artiscm.WorkloadRecorder;
+
+/**
+ * Stand-in for Artifactory serving recorded listings. Responses of a path are served in recorded order,
+ * the last one is repeated. Paths without recording get 404.
+ */
+@Path("/")
+public class ReplayResource {
+
+	private final Map<String, List<WorkloadRecorder.Entry>> listings = new HashMap<>();
+	private final Map<String, Integer> served = new HashMap<>();
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong unknownPaths = new AtomicLong();
+
+	/**
+	 * @param path recorded url without origin
+	 */
+	public void add(String path, WorkloadRecorder.Entry listing) {
+		String key = key(path);
+		List<WorkloadRecorder.Entry> responses = listings.get(key);
+		if (responses == null) {
+			responses = new ArrayList<>();
+			listings.put(key, responses);
+		}
+		responses.add(listing);
+	}
+
+	public long requests() {
+		return requests.get();
+	}
+
+	public long unknownPaths() {
+		return unknownPaths.get();
+	}
+
+	@GET
+	@Path("{path: .*}")
+	public Response listing(@PathParam("path") String path) {
+		requests.incrementAndGet();
+		WorkloadRecorder.Entry listing = next(key(path));
+		if (listing == null) {
+			unknownPaths.incrementAndGet();
+			return Response.status(404).build();
+		}
+		if (listing.body == null) {
+			return Response.status(listing.status).build();
+		}
+		String contentType = "text/html";
+		if (listing.charset != null) {
+			contentType += ";charset=" + listing.charset;
+		}
+		return Response.status(listing.status).type(contentType).entity(listing.body).build();
+	}
+
+	private synchronized WorkloadRecorder.Entry next(String key) {
+		List<WorkloadRecorder.Entry> responses = listings.get(key);
+		if (responses == null) {
+			return null;
+		}
+		Integer index = served.get(key);
+		int i = index != null ? index : 0;
+		served.put(key, i + 1);
+		return responses.get(Math.min(i, responses.size() - 1));
+	}
+
+	/**
+	 * Trailing slashes are not significant.
+	 */
+	private static String key(String path) {
+		while (path.startsWith("/")) {
+			path = path.substring(1);
+		}
+		while (path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+		return path;
+	}
+}
@@ -0,0 +1,200 @@
+package com.github.cnenning.artiscm.loadtest;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.jaxrs.JAXRSServerFactoryBean;
+
+import com.github.cnenning.artiscm.AbstractArtifactoryPlugin;
+import com.github.cnenning.artiscm.ArtifactoryPkgPlugin;
+import com.github.cnenning.artiscm.ArtifactoryScmPlugin;
+import com.github.cnenning.artiscm.LatencyHistogram;
+import com.github.cnenning.artiscm.WorkloadRecorder;
+import com.thoughtworks.go.plugin.api.GoApplicationAccessor;
+import com.thoughtworks.go.plugin.api.request.DefaultGoPluginApiRequest;
+import com.thoughtworks.go.plugin.api.request.GoApiRequest;
+import com.thoughtworks.go.plugin.api.response.DefaultGoApiResponse;
+import com.thoughtworks.go.plugin.api.response.GoApiResponse;
+import com.thoughtworks.go.plugin.api.response.GoPluginApiResponse;
+
+/**
+ * Replays a workload recorded by {@link WorkloadRecorder} through a fresh plugin instance against a {@link ReplayResource}.
+ * Urls of recorded servers are rewritten to the local stand-in, requests are sent one after another in recorded order.
+ * Checkouts are skipped, file downloads are not recorded.
+ * <p>
+ * Run with <code>gradle replay -Dreplay.file=/path/to/recording.gz</code>, further settings are system properties:
+ * <code>replay.plugin</code> scm or pkg, <code>replay.speed</code> 1 keeps recorded pauses between requests, 0 (default)
+ * sends them as fast as possible, plugin settings as json in <code>replay.pluginSettings</code>.
+ */
+public class WorkloadReplay {
+
+	private static final Pattern ORIGIN = Pattern.compile("^(https?://[^/]+)(/.*)?$");
+
+	public File file;
+	public boolean pkgPlugin;
+	public double speed;
+	public String pluginSettings = "{\"settingsReloadSeconds\": \"0\"}";
+
+	private final Map<String, LatencyHistogram> latencies = new TreeMap<>();
+	private final Map<String, Long> failed = new TreeMap<>();
+
+	public static void main(String[] args) throws Exception {
+		WorkloadReplay replay = new WorkloadReplay();
+		String path = System.getProperty("replay.file");
+		if (path == null) {
+			System.err.println("missing system property replay.file");
+			System.exit(1);
+		}
+		replay.file = new File(path);
+		replay.pkgPlugin = "pkg".equals(System.getProperty("replay.plugin"));
+		replay.speed = Double.parseDouble(System.getProperty("replay.speed", "0"));
+		replay.pluginSettings = System.getProperty("replay.pluginSettings", replay.pluginSettings);
+		System.out.println(replay.run());
+		System.exit(0);
+	}
+
+	public Report run() throws Exception {
+		List<WorkloadRecorder.Entry> entries = WorkloadRecorder.read(file);
+
+		String baseUrl;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			baseUrl = "http://localhost:" + socket.getLocalPort() + "/replay";
+		}
+		ReplayResource resource = new ReplayResource();
+		Set<String> origins = new LinkedHashSet<>();
+		List<WorkloadRecorder.Entry> requests = new ArrayList<>();
+		for (WorkloadRecorder.Entry entry : entries) {
+			if (WorkloadRecorder.TYPE_LISTING.equals(entry.type)) {
+				Matcher matcher = ORIGIN.matcher(entry.url);
+				if (matcher.matches()) {
+					origins.add(matcher.group(1));
+					resource.add(matcher.group(2) != null ? matcher.group(2) : "/", entry);
+				}
+			} else if (WorkloadRecorder.TYPE_REQUEST.equals(entry.type)
+					&& !ArtifactoryScmPlugin.REQUEST_SCM_CHECKOUT.equals(entry.name)) {
+				requests.add(entry);
+			}
+		}
+
+		JAXRSServerFactoryBean sf = new JAXRSServerFactoryBean();
+		sf.setAddress(baseUrl);
+		sf.setServiceBeanObjects(resource);
+		Server server = sf.create();
+		try {
+			AbstractArtifactoryPlugin plugin = createPlugin();
+			long start = System.nanoTime();
+			for (WorkloadRecorder.Entry entry : requests) {
+				if (speed > 0) {
+					long due = start + TimeUnit.MILLISECONDS.toNanos((long) (entry.millis / speed));
+					long wait = due - System.nanoTime();
+					if (wait > 0) {
+						TimeUnit.NANOSECONDS.sleep(wait);
+					}
+				}
+				replay(plugin, entry, rewrite(entry.body, origins, baseUrl));
+			}
+			long elapsedNanos = System.nanoTime() - start;
+			return new Report(this, requests.size(), elapsedNanos, resource.requests(), resource.unknownPaths());
+		} finally {
+			server.stop();
+			server.destroy();
+		}
+	}
+
+	private void replay(AbstractArtifactoryPlugin plugin, WorkloadRecorder.Entry entry, String body) {
+		DefaultGoPluginApiRequest request = new DefaultGoPluginApiRequest(pkgPlugin ? "package-repository" : "scm", "1.0", entry.name);
+		request.setRequestBody(body);
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			GoPluginApiResponse response = plugin.handle(request);
+			success = response != null && response.responseCode() == 200;
+		} catch (Exception e) {
+			// counted as failed
+		}
+		long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+		LatencyHistogram histogram = latencies.get(entry.name);
+		if (histogram == null) {
+			histogram = new LatencyHistogram();
+			latencies.put(entry.name, histogram);
+			failed.put(entry.name, 0L);
+		}
+		histogram.record(micros);
+		if (!success) {
+			failed.put(entry.name, failed.get(entry.name) + 1);
+		}
+	}
+
+	private static String rewrite(String body, Set<String> origins, String baseUrl) {
+		if (body == null) {
+			return null;
+		}
+		for (String origin : origins) {
+			body = body.replace(origin, baseUrl);
+		}
+		return body;
+	}
+
+	private AbstractArtifactoryPlugin createPlugin() {
+		AbstractArtifactoryPlugin plugin = pkgPlugin ? new ArtifactoryPkgPlugin() : new ArtifactoryScmPlugin();
+		plugin.initializeGoApplicationAccessor(new GoApplicationAccessor() {
+			@Override
+			public GoApiResponse submit(GoApiRequest request) {
+				DefaultGoApiResponse response = new DefaultGoApiResponse(200);
+				response.setResponseBody(pluginSettings);
+				return response;
+			}
+		});
+		return plugin;
+	}
+
+	public static class Report {
+		public final long requests;
+		public final long failedRequests;
+		public final double requestsPerSecond;
+		public final long serverRequests;
+		public final long unknownPaths;
+		private final String perRequest;
+		private final String setup;
+
+		Report(WorkloadReplay replay, long requests, long elapsedNanos, long serverRequests, long unknownPaths) {
+			this.requests = requests;
+			this.requestsPerSecond = requests / (elapsedNanos / 1e9);
+			this.serverRequests = serverRequests;
+			this.unknownPaths = unknownPaths;
+			long failedRequests = 0;
+			StringBuilder sb = new StringBuilder();
+			for (Map.Entry<String, LatencyHistogram> entry : replay.latencies.entrySet()) {
+				LatencyHistogram latencies = entry.getValue();
+				long failed = replay.failed.get(entry.getKey());
+				failedRequests += failed;
+				sb.append(String.format("%n%s: %d (%d failed), p50: %.1f ms, p95: %.1f ms, p99: %.1f ms, max: %.1f ms",
+						entry.getKey(), latencies.count(), failed, latencies.percentile(50) / 1000.0,
+						latencies.percentile(95) / 1000.0, latencies.percentile(99) / 1000.0, latencies.max() / 1000.0));
+			}
+			this.failedRequests = failedRequests;
+			this.perRequest = sb.toString();
+			this.setup = "file: " + replay.file
+					+ ", plugin: " + (replay.pkgPlugin ? "pkg" : "scm")
+					+ ", speed: " + replay.speed;
+		}
+
+		@Override
+		public String toString() {
+			return setup
+					+ String.format("%nrequests: %d (%d failed), %.1f requests/s", requests, failedRequests, requestsPerSecond)
+					+ String.format("%nserver requests: %d (%d not recorded)", serverRequests, unknownPaths)
+					+ perRequest;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.github.cnenning.artiscm.loadtest;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.cnenning.artiscm.WorkloadRecorder;
+
+public class WorkloadReplayTests {
+
+	@Test
+	public void recordAndReplay() throws Exception {
+		File file = File.createTempFile("workload", ".gz");
+		file.deleteOnExit();
+
+		PollingSimulator simulator = new PollingSimulator();
+		simulator.materials = 3;
+		simulator.threads = 2;
+		simulator.pollIntervalMillis = 200;
+		simulator.durationSeconds = 1;
+		simulator.pluginSettings = "{\"settingsReloadSeconds\": \"0\", \"recordWorkloadFile\": \""
+				+ file.getAbsolutePath().replace("\\", "\\\\") + "\"}";
+		simulator.run();
+
+		List<WorkloadRecorder.Entry> entries = WorkloadRecorder.read(file);
+		int requests = 0;
+		int listings = 0;
+		for (WorkloadRecorder.Entry entry : entries) {
+			if (WorkloadRecorder.TYPE_REQUEST.equals(entry.type)) {
+				requests++;
+				Assert.assertNotNull(entry.name);
+			} else {
+				listings++;
+				Assert.assertEquals(200, entry.status.intValue());
+				Assert.assertTrue(entry.body, entry.body.contains("<a href="));
+			}
+		}
+		Assert.assertTrue(requests >= simulator.materials);
+		Assert.assertTrue(listings >= simulator.materials);
+
+		WorkloadReplay replay = new WorkloadReplay();
+		replay.file = file;
+		WorkloadReplay.Report report = replay.run();
+		Assert.assertEquals(report.toString(), requests, report.requests);
+		Assert.assertEquals(report.toString(), 0, report.failedRequests);
+		Assert.assertEquals(report.toString(), 0, report.unknownPaths);
+		Assert.assertTrue(report.toString(), report.serverRequests > 0);
+	}
+}